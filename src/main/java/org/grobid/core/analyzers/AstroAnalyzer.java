@@ -1,11 +1,11 @@
 package org.grobid.core.analyzers;
 
+import org.grobid.core.layout.AstroSubLayoutToken;
 import org.grobid.core.layout.LayoutToken;
 import org.grobid.core.lang.Language;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.StringTokenizer;
 
 /**
  * Tokenizer for all Indo-European languages and identifying astronomical mentions.
@@ -53,8 +53,6 @@ public class AstroAnalyzer implements org.grobid.core.analyzers.Analyzer {
                         + "\u0020\u00A0\u2000\u2001\u2002\u2003\u2004\u2005\u2006\u2007"
                         + "\u2008\u2009\u200A\u202F\u205F\u3000\uF0A0";
 
-    private static final String REGEX = "(?<=[a-zA-Z])(?=\\d)|(?<=\\d)(?=\\D)";
-
     public String getName() {
         return "AstroAnalyzer";
     }
@@ -67,30 +65,22 @@ public class AstroAnalyzer implements org.grobid.core.analyzers.Analyzer {
 
     public List<String> tokenize(String text, Language lang) {
         List<String> result = new ArrayList<>();
-        StringTokenizer st = new StringTokenizer(text, DELIMITERS, true);
-        while (st.hasMoreTokens()) {
-            String token = st.nextToken();
-            // in addition we split "letter" characters and digits
-            String[] subtokens = token.split(REGEX);
-            for (int i = 0; i < subtokens.length; i++) {
-                result.add(subtokens[i]);
-            }
+        // delimiters and split of "letter" characters and digits are done in one pass
+        AstroTokenizer tokenizer = new AstroTokenizer(text);
+        while (tokenizer.next()) {
+            result.add(tokenizer.token());
         }
         return result;
     }
 
     public List<LayoutToken> tokenizeWithLayoutToken(String text) {
         List<LayoutToken> result = new ArrayList<>();
-        StringTokenizer st = new StringTokenizer(text, DELIMITERS, true);
-        while (st.hasMoreTokens()) {
-            String token = st.nextToken();
-            // in addition we split "letter" characters and digits
-            String[] subtokens = token.split(REGEX);
-            for (int i = 0; i < subtokens.length; i++) {
-                LayoutToken layoutToken = new LayoutToken();
-                layoutToken.setText(subtokens[i]);
-                result.add(layoutToken);
-            }
+        AstroTokenizer tokenizer = new AstroTokenizer(text);
+        while (tokenizer.next()) {
+            LayoutToken layoutToken = new LayoutToken();
+            layoutToken.setText(tokenizer.token());
+            layoutToken.setOffset(tokenizer.start());
+            result.add(layoutToken);
         }
 
         return result;
@@ -115,16 +105,18 @@ public class AstroAnalyzer implements org.grobid.core.analyzers.Analyzer {
      public List<LayoutToken> tokenize(LayoutToken chunk) {
         List<LayoutToken> result = new ArrayList<>();
         String text = chunk.getText();
-        StringTokenizer st = new StringTokenizer(text, DELIMITERS, true);
-        while (st.hasMoreTokens()) {
-            String token = st.nextToken();
-            // in addition we split "letter" characters and digits
-            String[] subtokens = token.split(REGEX);
-            for (int i = 0; i < subtokens.length; i++) {
-                LayoutToken theChunk = new LayoutToken(chunk); // deep copy
-                theChunk.setText(subtokens[i]);
-                result.add(theChunk);
+        AstroTokenizer tokenizer = new AstroTokenizer(text);
+        while (tokenizer.next()) {
+            if ((tokenizer.start() == 0) && (tokenizer.end() == text.length())) {
+                // the token is not split, no need for a sub-token
+                result.add(chunk);
+                break;
             }
+            // the sub-token shares the layout attributes of the original token, only the text
+            // and the offset in the source of the original token are specific
+            LayoutToken theChunk = new AstroSubLayoutToken(chunk, tokenizer.token(),
+                chunk.getOffset() + tokenizer.start());
+            result.add(theChunk);
         }
 
         return result;
@@ -0,0 +1,67 @@
+package org.grobid.core.analyzers;
+
+import org.grobid.core.layout.LayoutToken;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retokenization with the AstroAnalyzer of all the LayoutToken of a document, computed once
+ * and shared by all the zones of the document processed by the astro model.
+ *
+ * Once built, the retokenization is not modified and can be used by several threads.
+ */
+public class AstroRetokenization {
+
+    // all the sub-tokens of the document, in the order of the original tokens
+    private final List<LayoutToken> tokens;
+
+    // index of the first sub-token of every original token, the last element being the
+    // total number of sub-tokens
+    private final int[] starts;
+
+    // original token -> index of the original token in the document tokenization
+    private final Map<LayoutToken, Integer> index;
+
+    public AstroRetokenization(List<LayoutToken> documentTokens) {
+        AstroAnalyzer analyzer = AstroAnalyzer.getInstance();
+        int size = (documentTokens == null) ? 0 : documentTokens.size();
+        tokens = new ArrayList<>(size + (size / 2));
+        starts = new int[size + 1];
+        index = new IdentityHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            LayoutToken token = documentTokens.get(i);
+            starts[i] = tokens.size();
+            index.put(token, i);
+            tokens.addAll(analyzer.tokenize(token));
+        }
+        starts[size] = tokens.size();
+    }
+
+    /**
+     * All the sub-tokens of the document.
+     */
+    public List<LayoutToken> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Give the sub-tokens of a sequence of original tokens, as given by
+     * AstroAnalyzer.retokenizeLayoutTokens(). Tokens which are not part of the document
+     * tokenization are retokenized on the fly.
+     */
+    public List<LayoutToken> retokenize(List<LayoutToken> layoutTokens) {
+        List<LayoutToken> result = new ArrayList<>(layoutTokens.size() + (layoutTokens.size() / 2));
+        for (LayoutToken token : layoutTokens) {
+            Integer position = index.get(token);
+            if (position != null) {
+                result.addAll(tokens.subList(starts[position], starts[position + 1]));
+            } else {
+                result.addAll(AstroAnalyzer.getInstance().tokenize(token));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,116 @@
+package org.grobid.core.analyzers;
+
+/**
+ * Single pass tokenizer used by the AstroAnalyzer.
+ *
+ * Delimiters are looked-up in a character class table precomputed from AstroAnalyzer.DELIMITERS,
+ * each delimiter being a token, and sequences of "letter" characters and digits are split in the
+ * same pass, which gives the same tokens as a StringTokenizer over the delimiters followed by a
+ * split of every token with the regex "(?<=[a-zA-Z])(?=\\d)|(?<=\\d)(?=\\D)".
+ *
+ * The tokenizer is a simple cursor over the text, giving for every token its start and end
+ * offsets in the text:
+ *
+ *   AstroTokenizer tokenizer = new AstroTokenizer(text);
+ *   while (tokenizer.next()) {
+ *       String token = tokenizer.token();
+ *       int start = tokenizer.start();
+ *       int end = tokenizer.end();
+ *   }
+ *
+ * Instances are not thread-safe, a new tokenizer is expected for every text.
+ */
+public class AstroTokenizer {
+
+    private static final byte DELIMITER = 1;
+    private static final byte DIGIT = 2;
+    private static final byte ASCII_LETTER = 4;
+
+    // character class for every UTF-16 char
+    private static final byte[] CHAR_CLASSES = new byte[Character.MAX_VALUE + 1];
+
+    static {
+        for (int i = 0; i < AstroAnalyzer.DELIMITERS.length(); i++) {
+            CHAR_CLASSES[AstroAnalyzer.DELIMITERS.charAt(i)] = DELIMITER;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CHAR_CLASSES[c] |= DIGIT;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASSES[c] |= ASCII_LETTER;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CHAR_CLASSES[c] |= ASCII_LETTER;
+        }
+    }
+
+    private final String text;
+    private final int length;
+
+    // current position of the cursor
+    private int position = 0;
+
+    // offsets of the current token
+    private int start = -1;
+    private int end = -1;
+
+    public AstroTokenizer(String text) {
+        this.text = text;
+        this.length = (text == null) ? 0 : text.length();
+    }
+
+    public static boolean isDelimiter(char c) {
+        return (CHAR_CLASSES[c] & DELIMITER) != 0;
+    }
+
+    /**
+     * Move the cursor to the next token, return false if the end of the text is reached.
+     */
+    public boolean next() {
+        if (position >= length)
+            return false;
+
+        start = position;
+        char previous = text.charAt(position);
+        int i = position + 1;
+        if ((CHAR_CLASSES[previous] & DELIMITER) == 0) {
+            byte previousClass = CHAR_CLASSES[previous];
+            while (i < length) {
+                byte currentClass = CHAR_CLASSES[text.charAt(i)];
+                if ((currentClass & DELIMITER) != 0)
+                    break;
+                // split between a letter and a digit, and between a digit and a non-digit
+                if ((previousClass & ASCII_LETTER) != 0 && (currentClass & DIGIT) != 0)
+                    break;
+                if ((previousClass & DIGIT) != 0 && (currentClass & DIGIT) == 0)
+                    break;
+                previousClass = currentClass;
+                i++;
+            }
+        }
+        end = i;
+        position = i;
+        return true;
+    }
+
+    /**
+     * Start offset of the current token in the text.
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * End offset (exclusive) of the current token in the text.
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * String of the current token.
+     */
+    public String token() {
+        return text.substring(start, end);
+    }
+}
@@ -4,6 +4,7 @@ import org.grobid.core.utilities.OffsetPosition;
 import org.grobid.core.lexicon.AstroLexicon;
 import org.grobid.core.layout.BoundingBox;
 import org.grobid.core.layout.LayoutToken;
+import org.grobid.core.utilities.BoundingBoxCalculator;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -13,6 +14,11 @@ import java.util.List;
 /**
  *  Representation of a mention of an astronomical entity.
  *
+ *  The layout tokens of a mention are a range of a token store which is not copied: the
+ *  mentions of a PDF document share a store with all the tokens of the labeled zones of the
+ *  document, so that this store, and the layout tokens it refers to, stay reachable as long
+ *  as one mention of the document is kept. A mention kept longer than its document should be
+ *  copied without its tokens, after its bounding boxes are computed.
  */
 public class AstroEntity implements Comparable<AstroEntity> {   
 	
@@ -35,8 +41,12 @@ public class AstroEntity implements Comparable<AstroEntity> {
 	// surface form of the entity as it appears in the source document
 	private String rawForm = null;
 	
-	// list of layout tokens corresponding to the mention in the source document
-	private List<LayoutToken> tokens = null;
+	// layout tokens corresponding to the mention in the source document: the tokens from
+	// tokenStart (inclusive) to tokenEnd (exclusive) of a token list shared by all the
+	// mentions of the document
+	private List<LayoutToken> tokenStore = null;
+	private int tokenStart = 0;
+	private int tokenEnd = 0;
 	
 	// normalized form of the entity
     private String normalizedForm = null;
@@ -49,32 +59,34 @@ public class AstroEntity implements Comparable<AstroEntity> {
 	// identifier of the entity in this KB.
 	private String entityId = null;
 	
-	// relative offset positions in context, if defined
-	private OffsetPosition offsets = null;
+	// offset positions in the text of the token sequence of the entity, as given by
+	// LayoutTokensUtil.toText(), if defined
+	private int offsetStart = -1;
+	private int offsetEnd = -1;
 	
 	// confidence score of the entity in context, if defined
 	private double conf = 0.8;
 	
-	// optional bounding box in the source document
+	// optional bounding box in the source document, computed from the layout tokens when
+	// first asked if not set
 	private List<BoundingBox> boundingBoxes = null;
 		
 	// orign of the entity definition
 	private Origin origin = Origin.GROBID;
 	
     public AstroEntity() {
-		this.offsets = new OffsetPosition();
     }
 	
 	public AstroEntity(String rawForm) {
         this.rawForm = rawForm;
-		this.offsets = new OffsetPosition();
     }
 
 	public AstroEntity(AstroEntity ent) {
 		rawForm = ent.rawForm;
 		normalizedForm = ent.normalizedForm;
 		type = ent.type;
-		offsets = ent.offsets;
+		offsetStart = ent.offsetStart;
+		offsetEnd = ent.offsetEnd;
 		conf = ent.conf;
 		origin = ent.origin;
 	}
@@ -111,28 +123,32 @@ public class AstroEntity implements Comparable<AstroEntity> {
 		type = theType;
 	}
 
+	/**
+	 * Offsets of the entity, as a new OffsetPosition: changing it does not change the entity.
+	 */
 	public OffsetPosition getOffsets() {
-		return offsets;
+		return new OffsetPosition(offsetStart, offsetEnd);
 	}
 	
 	public void setOffsets(OffsetPosition offsets) {
-		this.offsets = offsets;
+		this.offsetStart = offsets.start;
+		this.offsetEnd = offsets.end;
 	}
 	
 	public void setOffsetStart(int start) {
-        offsets.start = start;
+        offsetStart = start;
     }
 
     public int getOffsetStart() {
-        return offsets.start;
+        return offsetStart;
     }
 
     public void setOffsetEnd(int end) {
-        offsets.end = end;
+        offsetEnd = end;
     }
 
     public int getOffsetEnd() {
-        return offsets.end;
+        return offsetEnd;
     }
 	
 	public double getConf() {
@@ -151,20 +167,63 @@ public class AstroEntity implements Comparable<AstroEntity> {
 		this.origin = origin;
 	}
 	
+	/**
+	 * Bounding boxes of the mention, computed from its layout tokens the first time, null if
+	 * the tokens have no coordinates (text input).
+	 */
 	public List<BoundingBox> getBoundingBoxes() {
+		if (boundingBoxes == null) {
+			List<LayoutToken> tokens = getTokens();
+			if (hasCoordinates(tokens))
+				boundingBoxes = BoundingBoxCalculator.calculate(tokens);
+		}
 		return boundingBoxes;
 	}
 
+	private static boolean hasCoordinates(List<LayoutToken> tokens) {
+		if (tokens == null)
+			return false;
+		for (LayoutToken token : tokens) {
+			if (token.getPage() >= 0)
+				return true;
+		}
+		return false;
+	}
+
 	public void setBoundingBoxes(List<BoundingBox> boundingBoxes) {
 		this.boundingBoxes = boundingBoxes;
 	}
 	
+	/**
+	 * Layout tokens of the mention, as a view of the token store, null if not defined.
+	 */
 	public List<LayoutToken> getTokens() {
-		return this.tokens;
+		if (tokenStore == null)
+			return null;
+		return tokenStore.subList(tokenStart, tokenEnd);
 	}
 	
 	public void setTokens(List<LayoutToken> tokens) {
-		this.tokens = tokens;
+		setTokens(tokens, 0, (tokens == null) ? 0 : tokens.size());
+	}
+
+	/**
+	 * Layout tokens of the mention as the range from start (inclusive) to end (exclusive)
+	 * of a token store, which is not copied and must not be modified afterwards. The whole
+	 * store is kept reachable by the mention, see the class description.
+	 */
+	public void setTokens(List<LayoutToken> tokenStore, int start, int end) {
+		this.tokenStore = tokenStore;
+		this.tokenStart = start;
+		this.tokenEnd = end;
+	}
+
+	public int getTokenStart() {
+		return tokenStart;
+	}
+
+	public int getTokenEnd() {
+		return tokenEnd;
 	}
 	
 	public void normalize() {
@@ -177,7 +236,7 @@ public class AstroEntity implements Comparable<AstroEntity> {
 		if ( (object != null) && object instanceof AstroEntity) {
 			int start = ((AstroEntity)object).getOffsetStart();
 			int end = ((AstroEntity)object).getOffsetEnd();
-			if ( (start == offsets.start) && (end == offsets.end) ) {
+			if ( (start == offsetStart) && (end == offsetEnd) ) {
 				result = true;
 			}
 		}
@@ -189,13 +248,21 @@ public class AstroEntity implements Comparable<AstroEntity> {
 		int start = theEntity.getOffsetStart();
 		int end = theEntity.getOffsetEnd();
 		
-		if (offsets.start != start) 
-			return offsets.start - start;
+		if (offsetStart != start) 
+			return offsetStart - start;
 		else 
-			return offsets.end - end;
+			return offsetEnd - end;
 	}
 	
 	public String toJson() {
+		return toJson(true);
+	}
+
+	/**
+	 * JSON representation of the entity, with its bounding boxes only if withGeometry is true,
+	 * so that the boxes are not computed when they are not needed.
+	 */
+	public String toJson(boolean withGeometry) {
 		ObjectMapper mapper = new ObjectMapper();
 		
 		StringBuffer buffer = new StringBuffer();
@@ -205,18 +272,24 @@ public class AstroEntity implements Comparable<AstroEntity> {
 		} catch (JsonProcessingException e) {
 			buffer.append("\"rawForm\" : \"" + "JsonProcessingException" + "\"");
 		}
-		if (normalizedForm != null)
-			buffer.append(", \"normalizedForm\" : \"" + normalizedForm + "\"");
+		if (normalizedForm != null) {
+			try {
+				buffer.append(", \"normalizedForm\" : " + mapper.writeValueAsString(normalizedForm));
+			} catch (JsonProcessingException e) {
+				buffer.append(", \"normalizedForm\" : \"" + "JsonProcessingException" + "\"");
+			}
+		}
 		if (type != null)
 			buffer.append(", \"type\" : \"" + type.getName() + "\"");	
 		if (entityId != null)
 			buffer.append(", \"id\" : \"" + entityId + "\"");	
 		
-		buffer.append(", \"offsetStart\" : " + offsets.start);
-		buffer.append(", \"offsetEnd\" : " + offsets.end);	
+		buffer.append(", \"offsetStart\" : ").append(offsetStart);
+		buffer.append(", \"offsetEnd\" : ").append(offsetEnd);	
 		
-		buffer.append(", \"conf\" : \"" + conf + "\"");
+		buffer.append(", \"conf\" : \"").append(conf).append("\"");
 		
+		List<BoundingBox> boundingBoxes = withGeometry ? getBoundingBoxes() : null;
 		if (boundingBoxes != null) {
 			buffer.append(", \"boundingBoxes\" : [");
 			boolean first = true;
@@ -249,10 +322,9 @@ public class AstroEntity implements Comparable<AstroEntity> {
 		if (entityId != null)
 			buffer.append(entityId + "\t");	
 
-		if (offsets != null) {
-			buffer.append(offsets.toString() + "\t");
-		}
+		buffer.append(getOffsets().toString() + "\t");
 
+		List<BoundingBox> boundingBoxes = getBoundingBoxes();
 		if ( (boundingBoxes != null) && (boundingBoxes.size()>0) ) {
 			for(BoundingBox box : boundingBoxes) {
 				buffer.append(box.toString() + "\t");
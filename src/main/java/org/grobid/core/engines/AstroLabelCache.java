@@ -0,0 +1,252 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.exceptions.GrobidException;
+import org.grobid.core.features.AstroFeatureMatrix;
+import org.grobid.core.utilities.AstroMetrics;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Cache of the labels of the sequences, in front of a labeler, for the paragraphs found again
+ * and again in the documents (acknowledgements, data availability statements, table
+ * headers...).
+ *
+ * The key of a sequence is the MD5 digest of the version of the model and of the feature
+ * matrix of the sequence, as written by AstroParser.addFeatures(), so that a cached result is
+ * never used with another model. The cache is bounded, the least recently used sequences
+ * being evicted first, and can be saved in a file to be loaded at the next start.
+ */
+public class AstroLabelCache implements AstroSequenceLabeler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AstroLabelCache.class);
+
+    // names of the metrics of the cache
+    public static final String METRIC_CACHE_HITS = "labeler.cache.hits";
+    public static final String METRIC_CACHE_MISSES = "labeler.cache.misses";
+    public static final String METRIC_CACHE_HIT_RATE = "labeler.cache.hitRate";
+    public static final String METRIC_CACHE_SIZE = "labeler.cache.size";
+
+    private static final int MAGIC = 0x4153544B;
+    private static final int FORMAT_VERSION = 1;
+
+    private final AstroSequenceLabeler labeler;
+    private final String modelVersion;
+    private final Cache<Key, int[]> cache;
+
+    /**
+     * MD5 digest of a sequence.
+     */
+    private static final class Key {
+        final long high;
+        final long low;
+
+        Key(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key))
+                return false;
+            Key key = (Key) object;
+            return (key.high == high) && (key.low == low);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (high ^ (high >>> 32));
+        }
+    }
+
+    /**
+     * @param labeler labeler of the sequences not in the cache
+     * @param modelVersion version of the model of the labeler
+     * @param maxSize maximum number of sequences in the cache
+     */
+    public AstroLabelCache(AstroSequenceLabeler labeler, String modelVersion, int maxSize) {
+        this.labeler = labeler;
+        this.modelVersion = modelVersion;
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .recordStats()
+            .build();
+
+        AstroMetrics metrics = AstroMetrics.getInstance();
+        metrics.gauge(METRIC_CACHE_HITS, () -> cache.stats().hitCount());
+        metrics.gauge(METRIC_CACHE_MISSES, () -> cache.stats().missCount());
+        metrics.gauge(METRIC_CACHE_HIT_RATE, () -> {
+            CacheStats stats = cache.stats();
+            return (stats.requestCount() == 0) ? null : stats.hitRate();
+        });
+        metrics.gauge(METRIC_CACHE_SIZE, () -> cache.size());
+    }
+
+    /**
+     * Version of a model file, as the MD5 digest of its content, or as the last modification
+     * time of a model directory.
+     */
+    public static String modelVersion(File modelFile) {
+        if (modelFile.isDirectory())
+            return modelFile.getName() + "@" + modelFile.lastModified();
+        try (InputStream input = new BufferedInputStream(new FileInputStream(modelFile))) {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] buffer = new byte[1 << 16];
+            int n;
+            while ((n = input.read(buffer)) != -1)
+                digest.update(buffer, 0, n);
+            StringBuilder version = new StringBuilder();
+            for (byte b : digest.digest())
+                version.append(String.format("%02x", b));
+            return version.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new GrobidException("Cannot compute the version of the model " + modelFile.getPath(), e);
+        }
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public int[] label(AstroFeatureMatrix matrix) {
+        Key key = key(matrix);
+        int[] labels = cache.getIfPresent(key);
+        if (labels == null) {
+            labels = labeler.label(matrix);
+            cache.put(key, labels);
+        }
+        return labels.clone();
+    }
+
+    /**
+     * Labels of the matrices, the matrices not in the cache being labeled with a single call to
+     * the labeler.
+     */
+    @Override
+    public List<int[]> label(List<AstroFeatureMatrix> matrices) {
+        List<int[]> labels = new ArrayList<>(matrices.size());
+        List<Key> missingKeys = new ArrayList<>();
+        List<AstroFeatureMatrix> missing = new ArrayList<>();
+        List<Integer> missingIndexes = new ArrayList<>();
+        for (AstroFeatureMatrix matrix : matrices) {
+            Key key = key(matrix);
+            int[] cached = cache.getIfPresent(key);
+            if (cached == null) {
+                missingKeys.add(key);
+                missing.add(matrix);
+                missingIndexes.add(labels.size());
+            }
+            labels.add((cached == null) ? null : cached.clone());
+        }
+        if (missing.size() > 0) {
+            List<int[]> missingLabels = labeler.label(missing);
+            for (int i = 0; i < missing.size(); i++) {
+                cache.put(missingKeys.get(i), missingLabels.get(i));
+                labels.set(missingIndexes.get(i), missingLabels.get(i).clone());
+            }
+        }
+        return labels;
+    }
+
+    private Key key(AstroFeatureMatrix matrix) {
+        StringBuilder features = new StringBuilder();
+        features.append(modelVersion).append('\n');
+        matrix.serialize(features);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new GrobidException("MD5 is not available.", e);
+        }
+        byte[] bytes = digest.digest(features.toString().getBytes(UTF_8));
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 8; i++) {
+            high = (high << 8) | (bytes[i] & 0xff);
+            low = (low << 8) | (bytes[i + 8] & 0xff);
+        }
+        return new Key(high, low);
+    }
+
+    /**
+     * Save the cached sequences in the file.
+     */
+    public void save(File file) throws IOException {
+        List<Map.Entry<Key, int[]>> entries = new ArrayList<>(cache.asMap().entrySet());
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(modelVersion);
+            output.writeInt(entries.size());
+            for (Map.Entry<Key, int[]> entry : entries) {
+                output.writeLong(entry.getKey().high);
+                output.writeLong(entry.getKey().low);
+                int[] labels = entry.getValue();
+                output.writeInt(labels.length);
+                for (int label : labels)
+                    output.writeByte(label);
+            }
+        }
+        if (!tmpFile.renameTo(file)) {
+            file.delete();
+            if (!tmpFile.renameTo(file))
+                throw new IOException("Cannot rename " + tmpFile.getPath() + " to " + file.getPath());
+        }
+        LOGGER.info(entries.size() + " cached label sequences saved in " + file.getPath());
+    }
+
+    /**
+     * Load the sequences saved in the file, if the file exists and was saved with the same
+     * model version.
+     */
+    public void load(File file) throws IOException {
+        if (!file.exists())
+            return;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if ((input.readInt() != MAGIC) || (input.readInt() != FORMAT_VERSION)) {
+                LOGGER.warn("Ignoring the label cache file " + file.getPath() + ": unknown format");
+                return;
+            }
+            if (!input.readUTF().equals(modelVersion)) {
+                LOGGER.info("Ignoring the label cache file " + file.getPath() + ": saved with another model");
+                return;
+            }
+            int size = input.readInt();
+            for (int i = 0; i < size; i++) {
+                Key key = new Key(input.readLong(), input.readLong());
+                int[] labels = new int[input.readInt()];
+                for (int j = 0; j < labels.length; j++)
+                    labels[j] = input.readByte();
+                cache.put(key, labels);
+            }
+            LOGGER.info(size + " cached label sequences loaded from " + file.getPath());
+        }
+    }
+}
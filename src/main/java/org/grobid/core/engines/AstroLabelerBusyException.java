@@ -0,0 +1,19 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.exceptions.GrobidException;
+
+/**
+ * No capacity to label a request: the requests waiting for a labeler, or the texts waiting
+ * to be batched, are over their limit, or the request waited longer than the timeout. The
+ * services send it back as 503, the request can be sent again later.
+ */
+public class AstroLabelerBusyException extends GrobidException {
+
+    public AstroLabelerBusyException(String message) {
+        super(message);
+    }
+
+    public AstroLabelerBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
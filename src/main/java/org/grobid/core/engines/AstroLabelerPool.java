@@ -0,0 +1,109 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.features.AstroFeatureMatrix;
+import org.grobid.core.utilities.AstroMetrics;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of labelers, each labeler being used by one thread at a time, to limit the
+ * number of labelings running at the same time.
+ *
+ * The threads wait for a labeler in arrival order, at most the wait timeout. A thread finding
+ * the queue of waiting threads full, or waiting longer than the timeout, gets a
+ * AstroLabelerBusyException, which the services send back as 503.
+ */
+public class AstroLabelerPool implements AstroSequenceLabeler {
+
+    // names of the metrics of the pool
+    public static final String METRIC_POOL_SIZE = "labeler.pool.size";
+    public static final String METRIC_POOL_AVAILABLE = "labeler.pool.available";
+    public static final String METRIC_POOL_WAITING = "labeler.pool.waiting";
+    public static final String METRIC_POOL_REJECTED = "labeler.pool.rejected";
+
+    private final BlockingQueue<AstroSequenceLabeler> labelers;
+    private final int size;
+    private final int queueSize;
+    private final long waitTimeout;
+
+    // number of threads waiting for a labeler
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /**
+     * @param size number of labelers, created with the factory
+     * @param queueSize maximum number of threads waiting for a labeler
+     * @param waitTimeout maximum waiting time for a labeler, in milliseconds
+     */
+    public AstroLabelerPool(Supplier<AstroSequenceLabeler> factory, int size, int queueSize, long waitTimeout) {
+        this.size = Math.max(size, 1);
+        this.queueSize = Math.max(queueSize, 0);
+        this.waitTimeout = waitTimeout;
+        // fair, so that the waiting threads get a labeler in arrival order
+        this.labelers = new ArrayBlockingQueue<>(this.size, true);
+        for (int i = 0; i < this.size; i++)
+            labelers.add(factory.get());
+
+        AstroMetrics metrics = AstroMetrics.getInstance();
+        metrics.gauge(METRIC_POOL_SIZE, () -> this.size);
+        metrics.gauge(METRIC_POOL_AVAILABLE, labelers::size);
+        metrics.gauge(METRIC_POOL_WAITING, waiting::get);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public long getWaitTimeout() {
+        return waitTimeout;
+    }
+
+    @Override
+    public int[] label(AstroFeatureMatrix matrix) {
+        AstroSequenceLabeler labeler = acquire();
+        try {
+            return labeler.label(matrix);
+        } finally {
+            labelers.add(labeler);
+        }
+    }
+
+    @Override
+    public List<int[]> label(List<AstroFeatureMatrix> matrices) {
+        AstroSequenceLabeler labeler = acquire();
+        try {
+            return labeler.label(matrices);
+        } finally {
+            labelers.add(labeler);
+        }
+    }
+
+    private AstroSequenceLabeler acquire() {
+        int nbWaiting = waiting.incrementAndGet();
+        try {
+            if ((nbWaiting > queueSize) && labelers.isEmpty()) {
+                AstroMetrics.getInstance().increment(METRIC_POOL_REJECTED);
+                throw new AstroLabelerBusyException("Too many requests waiting for an astro labeler: " + queueSize);
+            }
+            AstroSequenceLabeler labeler = labelers.poll(waitTimeout, TimeUnit.MILLISECONDS);
+            if (labeler == null) {
+                AstroMetrics.getInstance().increment(METRIC_POOL_REJECTED);
+                throw new AstroLabelerBusyException("No astro labeler available after " + waitTimeout + " ms");
+            }
+            return labeler;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AstroLabelerBusyException("Interrupted while waiting for an astro labeler", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import org.grobid.core.GrobidModels;
 import org.grobid.core.analyzers.AstroAnalyzer;
+import org.grobid.core.analyzers.AstroRetokenization;
 import org.grobid.core.data.AstroEntity;
 import org.grobid.core.data.BiblioItem;
 import org.grobid.core.document.Document;
@@ -19,16 +20,20 @@ import org.grobid.core.engines.label.AstroTaggingLabels;
 import org.grobid.core.engines.label.SegmentationLabels;
 import org.grobid.core.engines.label.TaggingLabel;
 import org.grobid.core.engines.label.TaggingLabels;
+import org.grobid.core.engines.tagging.WapitiTagger;
 import org.grobid.core.exceptions.GrobidException;
 import org.grobid.core.factory.GrobidFactory;
+import org.grobid.core.features.AstroFeatureMatrix;
 import org.grobid.core.features.FeaturesVectorAstro;
-import org.grobid.core.layout.BoundingBox;
 import org.grobid.core.layout.LayoutToken;
 import org.grobid.core.layout.LayoutTokenization;
+import org.grobid.core.lexicon.AstroDesignationRecognizer;
 import org.grobid.core.lexicon.AstroLexicon;
 import org.grobid.core.sax.TextChunkSaxHandler;
 import org.grobid.core.tokenization.TaggingTokenCluster;
 import org.grobid.core.tokenization.TaggingTokenClusteror;
+import org.grobid.core.utilities.AstroConfiguration;
+import org.grobid.core.utilities.AstroMetrics;
 import org.grobid.core.utilities.LanguageUtilities;
 import org.grobid.core.utilities.TextUtilities;
 import org.grobid.core.utilities.KeyGen;
@@ -39,7 +44,6 @@ import org.grobid.core.utilities.Consolidation;
 import org.grobid.core.utilities.matching.ReferenceMarkerMatcher;
 import org.grobid.core.utilities.matching.EntityMatcherException;
 import org.grobid.core.utilities.UnicodeUtil;
-import org.grobid.core.utilities.BoundingBoxCalculator;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +55,14 @@ import java.io.*;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.commons.lang3.StringUtils.*;
@@ -66,6 +78,18 @@ public class AstroParser extends AbstractParser {
 
     private static volatile AstroParser instance;
 
+    // buffer of the feature matrix of a sequence, reused by the sequences of a thread, and
+    // released after a sequence larger than MAX_FEATURE_BUFFER chars
+    private static final ThreadLocal<StringBuilder> FEATURE_BUFFER = 
+        ThreadLocal.withInitial(() -> new StringBuilder(16384));
+    private static final int MAX_FEATURE_BUFFER = 1 << 22;
+
+    // names of the metrics of the labeling
+    public static final String METRIC_LABEL = "parser.label.sequences";
+    public static final String METRIC_LABEL_SKIPPED = "parser.label.skippedSequences";
+    public static final String METRIC_LABEL_CALLS = "parser.label.calls";
+    public static final String METRIC_LABEL_CHUNKS = "parser.label.chunks";
+
     public static AstroParser getInstance() {
         if (instance == null) {
             getNewInstance();
@@ -80,60 +104,364 @@ public class AstroParser extends AbstractParser {
         instance = new AstroParser();
     }
 
-    private AstroLexicon astroLexicon = null;
 	private EngineParsers parsers;
 
+    // labeler of the in-memory feature matrices
+    private volatile AstroSequenceLabeler labeler;
+
+    // gate of the sequences given to the labeler, every sequence is labeled unless a gate is
+    // configured
+    private volatile AstroSequenceGate gate = AstroSequenceGate.OFF;
+
+    // split of the long sequences, null if the sequences are labeled whole, and pool labeling
+    // the chunks in parallel
+    private volatile AstroSequenceChunker chunker = null;
+    private ForkJoinPool chunkPool = null;
+
+    // executor of the zones of the PDF documents and of the labeling of their sequences, shared
+    // by all the documents, null if the zones are processed on the thread of the request
+    private volatile ExecutorService zoneExecutor = null;
+    private volatile int zoneThreads = 1;
+
     private AstroParser() {
         super(GrobidModels.ASTRO);
-        astroLexicon = AstroLexicon.getInstance();
+        // load the lexicon at start-up rather than with the first request
+        AstroLexicon.getInstance();
 		parsers = new EngineParsers();
+        labeler = new AstroTextLabeler(this::label);
     }
 
     /**
-     * Extract all Astro Objects from a simple piece of text.
+     * Configure the labeling: the labeling engine of the model, "wapiti" for the native
+     * library (default) or, not yet a documented choice, "java" for the Java decoder of the
+     * same Wapiti model, and the pool
+     * of labelers if labelerPoolSize is not 0, the gate of the sequences to label, the split of
+     * the long sequences, the cache of the labels and the executor of the zones of the PDF
+     * documents.
      */
-    public List<AstroEntity> processText(String text) throws Exception {
-        if (isBlank(text)) {
-            return null;
+    public void configureLabeling(AstroConfiguration configuration) {
+        String engine = configuration.getLabeler();
+        Supplier<AstroSequenceLabeler> factory;
+        if ((engine == null) || engine.equals("wapiti")) {
+            String modelEngine = (configuration.getModel() != null) ? configuration.getModel().engine : null;
+            if ((modelEngine == null) || modelEngine.equals("wapiti")) {
+                // one native tagger per labeler of the pool
+                factory = () -> new AstroTextLabeler(new WapitiTagger(GrobidModels.ASTRO)::label);
+            } else {
+                AstroSequenceLabeler shared = new AstroTextLabeler(this::label);
+                factory = () -> shared;
+            }
+            engine = "wapiti";
+        } else if (engine.equals(AstroViterbiLabeler.ENGINE_NAME)) {
+            // the decoder is thread-safe, the loaded model is shared by the labelers of the pool
+            AstroSequenceLabeler shared = AstroViterbiLabeler.load(new File(GrobidModels.ASTRO.getModelPath()));
+            factory = () -> shared;
+        } else {
+            throw new GrobidException("Unknown labeling engine: " + engine);
         }
-        List<AstroEntity> entities = new ArrayList<AstroEntity>();
-        try {
-            text = text.replace("\n", " ");
-            text = text.replace("\t", " ");
-            List<LayoutToken> tokens = AstroAnalyzer.getInstance().tokenizeWithLayoutToken(text);
-            if (tokens.size() == 0) {
-                return null;
+
+        int poolSize = configuration.getLabelerPoolSize();
+        if (poolSize < 0)
+            poolSize = Runtime.getRuntime().availableProcessors();
+        if (poolSize == 0) {
+            labeler = engine.equals("wapiti") ? new AstroTextLabeler(this::label) : factory.get();
+            logger.info("Astro labeling engine: " + engine);
+        } else {
+            labeler = new AstroLabelerPool(factory, poolSize, configuration.getLabelerQueueSize(), 
+                configuration.getLabelerWaitTimeout());
+            logger.info("Astro labeling engine: " + engine + ", pool of " + poolSize + " labelers");
+        }
+
+        gate = AstroSequenceGate.fromName(configuration.getLabelGate());
+        logger.info("Astro labeling gate: " + gate.name().toLowerCase());
+
+        if (configuration.getLabelChunkSize() > 0) {
+            synchronized (this) {
+                if (chunkPool == null)
+                    chunkPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
             }
+            chunker = new AstroSequenceChunker(configuration.getLabelChunkSize(), configuration.getLabelChunkOverlap());
+            logger.info("Astro sequences labeled by chunks of " + configuration.getLabelChunkSize() + " tokens");
+        } else {
+            chunker = null;
+        }
 
-            String ress = null;
-            List<String> texts = new ArrayList<>();
-            for (LayoutToken token : tokens) {
-                if (!token.getText().equals(" ") && !token.getText().equals("\t") && !token.getText().equals("\u00A0")) {
-                    texts.add(token.getText());
+        int pdfThreads = configuration.getPdfThreads();
+        if (pdfThreads < 0)
+            pdfThreads = Runtime.getRuntime().availableProcessors();
+        synchronized (this) {
+            if ((pdfThreads > 1) && (zoneExecutor == null)) {
+                zoneExecutor = Executors.newFixedThreadPool(pdfThreads, runnable -> {
+                    Thread thread = new Thread(runnable, "astro-pdf-zone");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                zoneThreads = pdfThreads;
+                logger.info("Astro PDF zones processed on " + pdfThreads + " threads");
+            }
+        }
+
+        FeaturesVectorAstro.setTokenCacheSize(configuration.getFeatureCacheSize());
+
+        if (configuration.getLabelCacheSize() > 0) {
+            File modelFile = new File(GrobidModels.ASTRO.getModelPath());
+            AstroLabelCache cache = new AstroLabelCache(labeler, AstroLabelCache.modelVersion(modelFile),
+                configuration.getLabelCacheSize());
+            if (configuration.getLabelCacheFile() != null) {
+                File cacheFile = new File(configuration.getLabelCacheFile());
+                try {
+                    cache.load(cacheFile);
+                } catch (IOException e) {
+                    logger.warn("Cannot load the label cache file " + cacheFile.getPath(), e);
                 }
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        cache.save(cacheFile);
+                    } catch (IOException e) {
+                        logger.warn("Cannot save the label cache file " + cacheFile.getPath(), e);
+                    }
+                }, "astro-label-cache-save"));
             }
+            labeler = cache;
+            logger.info("Astro label cache of " + configuration.getLabelCacheSize() + " sequences");
+        }
+    }
 
-            // to store astronomical name positions (names coming from the optional dictionary)
-            List<OffsetPosition> astroTokenPositions = astroLexicon.tokenPositionsAstroNames(tokens);
-            ress = addFeatures(tokens, astroTokenPositions);
-            String res;
-            try {
-//System.out.println(ress);
-                res = label(ress);
-            } catch (Exception e) {
-                throw new GrobidException("CRF labeling for astro parsing failed.", e);
+    /**
+     * Extract all Astro Objects from a simple piece of text.
+     */
+    public List<AstroEntity> processText(String text) throws Exception {
+        return processTexts(Collections.singletonList(text)).get(0);
+    }
+
+    /**
+     * Extract all Astro Objects from several pieces of text, labeled together. The result
+     * of every text is the result of processText() for this text, null for an empty text.
+     */
+    public List<List<AstroEntity>> processTexts(List<String> texts) throws Exception {
+        List<List<AstroEntity>> results = new ArrayList<>(texts.size());
+        try {
+            List<TokenSequence> sequences = new ArrayList<>();
+            for (String text : texts) {
+                if (isBlank(text)) {
+                    sequences.add(null);
+                    continue;
+                }
+                text = text.replace("\n", " ");
+                text = text.replace("\t", " ");
+                List<LayoutToken> tokens = AstroAnalyzer.getInstance().tokenizeWithLayoutToken(text);
+                sequences.add((tokens.size() == 0) ? null : new TokenSequence(text, tokens));
             }
-//System.out.println(res);
-            entities = extractAstroEntities(text, res, tokens);
+
+            List<TokenSequence> nonEmpty = new ArrayList<>(sequences);
+            nonEmpty.removeIf(Objects::isNull);
+            Iterator<List<AstroEntity>> entities = processSequences(nonEmpty).iterator();
+            for (TokenSequence sequence : sequences)
+                results.add((sequence == null) ? null : entities.next());
+        } catch (AstroLabelerBusyException e) {
+            // no labeler available
+            throw e;
         } catch (Exception e) {
             throw new GrobidException("An exception occured while running Grobid.", e);
         }
 
+        return results;
+    }
+
+    /**
+     * Sequence of tokens of a zone of a document, with the entities found in the sequence.
+     */
+    private static final class TokenSequence {
+        final String text;
+        final List<LayoutToken> tokens;
+
+        // entities of the catalog designations
+        List<AstroEntity> designations;
+
+        // feature matrix of the sequence, null if the sequence is not labeled
+        AstroFeatureMatrix matrix;
+
+        // token list referenced by the entities of the sequence, where the tokens of the
+        // sequence start at storeStart
+        List<LayoutToken> store;
+        int storeStart = 0;
+
+        TokenSequence(String text, List<LayoutToken> tokens) {
+            this.text = text;
+            this.tokens = tokens;
+            this.store = tokens;
+        }
+    }
+
+    /**
+     * Make the sequences of a document share a single token store, so that the entities of
+     * the document reference ranges of the same token list instead of keeping their own.
+     * Every entity keeps the whole store reachable.
+     */
+    private static void shareTokenStore(List<TokenSequence> sequences) {
+        int size = 0;
+        for (TokenSequence sequence : sequences)
+            size += sequence.tokens.size();
+        List<LayoutToken> store = new ArrayList<>(size);
+        for (TokenSequence sequence : sequences) {
+            sequence.store = store;
+            sequence.storeStart = store.size();
+            store.addAll(sequence.tokens);
+        }
+    }
+
+    /**
+     * Entities of a sequence of tokens, sorted.
+     */
+    private List<AstroEntity> processTokens(String text, List<LayoutToken> tokens) {
+        return processSequences(Collections.singletonList(new TokenSequence(text, tokens))).get(0);
+    }
+
+    /**
+     * Entities of sequences of tokens, sorted, in the order of the sequences. The
+     * catalog designations with a strict grammar are recognized deterministically, and a
+     * sequence is labeled with the CRF model only if it has letter or digit tokens outside
+     * of the designations and the gate finds tokens which can still be part of another
+     * entity. All the sequences to label are given to the labeler at once. The entities found
+     * by the CRF model overlapping a designation are discarded.
+     */
+    private List<List<AstroEntity>> processSequences(List<TokenSequence> sequences) {
+        AstroDesignationRecognizer recognizer = AstroDesignationRecognizer.getInstance();
+        AstroLexicon astroLexicon = AstroLexicon.getInstance();
+        AstroSequenceGate gate = this.gate;
+        List<AstroFeatureMatrix> matrices = new ArrayList<>();
+        int nbSkipped = 0;
+        for (TokenSequence sequence : sequences) {
+            List<AstroDesignationRecognizer.Designation> designations = recognizer.recognize(sequence.tokens);
+            sequence.designations = designationEntities(designations, sequence);
+            BitSet designationTokens = new BitSet(sequence.tokens.size());
+            for (AstroDesignationRecognizer.Designation designation : designations)
+                designationTokens.set(designation.getPosition().start, designation.getPosition().end + 1);
+
+            // nothing left for the model in a sequence made of designations (table lines,
+            // lists of objects), whatever the gate
+            if (!designations.isEmpty() && !hasWordOutside(sequence.tokens, designationTokens)) {
+                nbSkipped++;
+                continue;
+            }
+
+            // positions for lexical match
+            List<OffsetPosition> astroTokenPositions = astroLexicon.tokenPositionsAstroNames(sequence.tokens);
+
+            AstroFeatureMatrix matrix = featureMatrix(sequence.tokens, astroTokenPositions, astroLexicon);
+            if (!gate.isCandidate(matrix, designationTokens)) {
+                nbSkipped++;
+                continue;
+            }
+            sequence.matrix = matrix;
+            matrices.add(matrix);
+        }
+        AstroMetrics.getInstance().add(METRIC_LABEL_SKIPPED, nbSkipped);
+        AstroMetrics.getInstance().add(METRIC_LABEL, matrices.size());
+
+        List<int[]> labels = labelMatrices(matrices);
+
+        List<List<AstroEntity>> entities = new ArrayList<>(sequences.size());
+        int labeled = 0;
+        for (TokenSequence sequence : sequences) {
+            List<AstroEntity> sequenceEntities = new ArrayList<>(sequence.designations);
+            int[] rowLabels = (sequence.matrix != null) ? labels.get(labeled++) : null;
+            // most of the labeled sequences have no entity
+            if ((rowLabels != null) && hasObjectLabel(rowLabels)) {
+                int[] tokenLabels = sequence.matrix.alignToTokens(rowLabels);
+                int nbTokens = Math.min(sequence.tokens.size(), tokenLabels.length);
+                for (AstroEntity entity : extractAstroEntities(sequence.store, sequence.storeStart, nbTokens, tokenLabels)) {
+                    boolean overlap = false;
+                    for (AstroEntity designation : sequence.designations) {
+                        if ((entity.getOffsetStart() < designation.getOffsetEnd()) && 
+                            (designation.getOffsetStart() < entity.getOffsetEnd())) {
+                            overlap = true;
+                            break;
+                        }
+                    }
+                    if (!overlap)
+                        sequenceEntities.add(entity);
+                }
+            }
+            sequence.matrix = null;
+            if (sequenceEntities.size() > 1)
+                Collections.sort(sequenceEntities);
+            entities.add(sequenceEntities);
+        }
+        return entities;
+    }
+
+    // true if a token with a letter or a digit is not in the excluded tokens
+    private static boolean hasWordOutside(List<LayoutToken> tokens, BitSet excludedTokens) {
+        for (int i = excludedTokens.nextClearBit(0); i < tokens.size(); i = excludedTokens.nextClearBit(i + 1)) {
+            String text = tokens.get(i).getText();
+            if (text == null)
+                continue;
+            for (int j = 0; j < text.length(); j++) {
+                if (Character.isLetterOrDigit(text.charAt(j)))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasObjectLabel(int[] labels) {
+        for (int label : labels) {
+            if ((label == AstroTaggingLabels.LABEL_OBJECT_BEGIN) || (label == AstroTaggingLabels.LABEL_OBJECT_INSIDE))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Offsets of the tokens in the text of the sequence, LayoutTokensUtil.toText(tokens), the
+     * last element being the length of the text. The offsets of the layout tokens are not
+     * used, as the tokens of a zone are not always contiguous in the document.
+     */
+    private static int[] textOffsets(List<LayoutToken> tokens) {
+        int[] offsets = new int[tokens.size() + 1];
+        for (int i = 0; i < tokens.size(); i++) {
+            String text = tokens.get(i).getText();
+            offsets[i + 1] = offsets[i] + ((text == null) ? 0 : text.length());
+        }
+        return offsets;
+    }
+
+    private List<AstroEntity> designationEntities(List<AstroDesignationRecognizer.Designation> designations, 
+                                                  TokenSequence sequence) {
+        List<AstroEntity> entities = new ArrayList<>();
+        if (designations.size() == 0)
+            return entities;
+        int[] textOffsets = textOffsets(sequence.tokens);
+        AstroLexicon astroLexicon = AstroLexicon.getInstance();
+        for (AstroDesignationRecognizer.Designation designation : designations) {
+            int start = sequence.storeStart + designation.getPosition().start;
+            int end = sequence.storeStart + designation.getPosition().end + 1;
+            List<LayoutToken> theTokens = sequence.store.subList(start, end);
+
+            AstroEntity currentEntity = new AstroEntity();
+            currentEntity.setRawForm(LayoutTokensUtil.toText(theTokens));
+            currentEntity.setOffsetStart(textOffsets[designation.getPosition().start]);
+            currentEntity.setOffsetEnd(textOffsets[designation.getPosition().end + 1]);
+            currentEntity.setType(AstroLexicon.Astro_Type.OBJECT);
+            currentEntity.setTokens(sequence.store, start, end);
+            currentEntity.setConf(1.0);
+
+            String normalizedForm = astroLexicon.getCanonicalName(currentEntity.getRawForm());
+            if (normalizedForm == null)
+                normalizedForm = designation.getNormalizedForm(theTokens);
+            currentEntity.setNormalizedForm(normalizedForm);
+
+            entities.add(currentEntity);
+        }
         return entities;
     }
 
 	/**
-	  * Extract all Astro Objects from a pdf file, with 
+	  * Extract all Astro Objects from a pdf file. The header, the body and the annexes are
+	  * processed as independent tasks on the zone executor if there is one, and their
+	  * sequences are then labeled by groups on the same executor. The entities share the
+	  * tokens of the document, see AstroEntity.
 	  */
     public Pair<List<AstroEntity>,Document> processPDF(File file) throws IOException {
 
@@ -145,147 +473,238 @@ public class AstroParser extends AbstractParser {
 			DocumentSource documentSource = 
 				DocumentSource.fromPdf(file, config.getStartPage(), config.getEndPage());
 			doc = parsers.getSegmentationParser().processing(documentSource, config);
+            final Document document = doc;
 
-            // here we process the relevant textual content of the document
+            // the astro retokenization of the document is done once and shared by all the zones
+            AstroRetokenization retokenization = new AstroRetokenization(doc.getTokenizations());
 
             // for refining the process based on structures, we need to filter
             // segment of interest (e.g. header, body, annex) and possibly apply 
             // the corresponding model to further filter by structure types 
-
-            // from the header, we are interested in title, abstract and keywords
-            SortedSet<DocumentPiece> documentParts = doc.getDocumentPart(SegmentationLabels.HEADER);
-            if (documentParts != null) {
-                Pair<String, List<LayoutToken>> headerStruct = parsers.getHeaderParser().getSectionHeaderFeatured(doc, documentParts);
-
-                List<LayoutToken> tokenizationHeader = headerStruct.getRight();
-                //doc.getTokenizationParts(documentParts, doc.getTokenizations());
-                String header = headerStruct.getLeft();
-                String labeledResult = null;
-                if ((header != null) && (header.trim().length() > 0)) {
-                    labeledResult = parsers.getHeaderParser().label(header);
-
-                    BiblioItem resHeader = new BiblioItem();
-                    //parsers.getHeaderParser().processingHeaderSection(false, doc, resHeader);
-                    resHeader.generalResultMapping(labeledResult, tokenizationHeader);
-
-                    // title
-                    List<LayoutToken> titleTokens = resHeader.getLayoutTokens(TaggingLabels.HEADER_TITLE);
-                    if (titleTokens != null) {
-                        processLayoutTokenSequence(titleTokens, entities);
-                    } 
-
-                    // abstract
-                    List<LayoutToken> abstractTokens = resHeader.getLayoutTokens(TaggingLabels.HEADER_ABSTRACT);
-                    if (abstractTokens != null) {
-                        processLayoutTokenSequence(abstractTokens, entities);
-                    } 
-
-                    // keywords
-                    List<LayoutToken> keywordTokens = resHeader.getLayoutTokens(TaggingLabels.HEADER_KEYWORD);
-                    if (keywordTokens != null) {
-                        processLayoutTokenSequence(keywordTokens, entities);
-                    }
-                }
+            List<Callable<List<TokenSequence>>> zones = new ArrayList<>();
+            zones.add(() -> headerSequences(document, retokenization));
+            zones.add(() -> bodySequences(document, retokenization));
+            zones.add(() -> annexSequences(document, retokenization));
+
+            // the sequences of all the zones, in the order of the zones, are labeled at the end
+            List<TokenSequence> sequences = new ArrayList<>();
+            for (List<TokenSequence> zoneSequences : runTasks(zones))
+                sequences.addAll(zoneSequences);
+            shareTokenStore(sequences);
+
+            List<Callable<List<List<AstroEntity>>>> labelings = new ArrayList<>();
+            for (List<TokenSequence> group : balancedGroups(sequences, sequence -> sequence.tokens.size(), zoneThreads))
+                labelings.add(() -> processSequences(group));
+            for (List<List<AstroEntity>> groupEntities : runTasks(labelings)) {
+                for (List<AstroEntity> sequenceEntities : groupEntities)
+                    entities.addAll(sequenceEntities);
             }
+        } catch (AstroLabelerBusyException e) {
+            // no labeler available
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new GrobidException("Cannot process pdf file: " + file.getPath());
+        }
 
-            // process selected structures in the body,
-            documentParts = doc.getDocumentPart(SegmentationLabels.BODY);
-            if (documentParts != null) {
-                // full text processing
-                Pair<String, LayoutTokenization> featSeg = parsers.getFullTextParser().getBodyTextFeatured(doc, documentParts);
-                if (featSeg != null) {
-                    // if featSeg is null, it usually means that no body segment is found in the
-                    // document segmentation
-                    String bodytext = featSeg.getLeft();
-
-                    LayoutTokenization tokenizationBody = featSeg.getRight();
-                    String rese = null;
-                    if ( (bodytext != null) && (bodytext.trim().length() > 0) ) {               
-                        rese = parsers.getFullTextParser().label(bodytext);
-                    } else {
-                        logger.debug("Fulltext model: The input to the CRF processing is empty");
-                    }
+        Collections.sort(entities);
+        return Pair.of(entities, doc);
+    }
 
-                    TaggingTokenClusteror clusteror = new TaggingTokenClusteror(GrobidModels.FULLTEXT, rese, 
-                        tokenizationBody.getTokenization(), true);
-                    List<TaggingTokenCluster> clusters = clusteror.cluster();
-                    for (TaggingTokenCluster cluster : clusters) {
-                        if (cluster == null) {
-                            continue;
-                        }
+    /**
+     * Sequences of the header: title, abstract and keywords.
+     */
+    private List<TokenSequence> headerSequences(Document doc, AstroRetokenization retokenization) throws Exception {
+        List<TokenSequence> sequences = new ArrayList<>();
+        SortedSet<DocumentPiece> documentParts = doc.getDocumentPart(SegmentationLabels.HEADER);
+        if (documentParts == null)
+            return sequences;
+        Pair<String, List<LayoutToken>> headerStruct = parsers.getHeaderParser().getSectionHeaderFeatured(doc, documentParts);
+
+        List<LayoutToken> tokenizationHeader = headerStruct.getRight();
+        //doc.getTokenizationParts(documentParts, doc.getTokenizations());
+        String header = headerStruct.getLeft();
+        String labeledResult = null;
+        if ((header != null) && (header.trim().length() > 0)) {
+            labeledResult = parsers.getHeaderParser().label(header);
+
+            BiblioItem resHeader = new BiblioItem();
+            //parsers.getHeaderParser().processingHeaderSection(false, doc, resHeader);
+            resHeader.generalResultMapping(labeledResult, tokenizationHeader);
+
+            // title
+            List<LayoutToken> titleTokens = resHeader.getLayoutTokens(TaggingLabels.HEADER_TITLE);
+            if (titleTokens != null) {
+                processLayoutTokenSequence(titleTokens, retokenization, sequences);
+            } 
+
+            // abstract
+            List<LayoutToken> abstractTokens = resHeader.getLayoutTokens(TaggingLabels.HEADER_ABSTRACT);
+            if (abstractTokens != null) {
+                processLayoutTokenSequence(abstractTokens, retokenization, sequences);
+            } 
+
+            // keywords
+            List<LayoutToken> keywordTokens = resHeader.getLayoutTokens(TaggingLabels.HEADER_KEYWORD);
+            if (keywordTokens != null) {
+                processLayoutTokenSequence(keywordTokens, retokenization, sequences);
+            }
+        }
+        return sequences;
+    }
 
-                        TaggingLabel clusterLabel = cluster.getTaggingLabel();
-                        Engine.getCntManager().i(clusterLabel);
-
-                        List<LayoutToken> localTokenization = cluster.concatTokens();
-                        if ((localTokenization == null) || (localTokenization.size() == 0))
-                            continue;
-
-                        String clusterContent = LayoutTokensUtil.normalizeText(LayoutTokensUtil.toText(cluster.concatTokens()));
-                        if (clusterLabel.equals(TaggingLabels.PARAGRAPH) || clusterLabel.equals(TaggingLabels.ITEM)
-                            || clusterLabel.equals(TaggingLabels.SECTION) ) {
-                            processLayoutTokenSequence(localTokenization, entities);
-                        } else if (clusterLabel.equals(TaggingLabels.TABLE)) {
-                            processLayoutTokenSequenceTableFigure(localTokenization, entities);
-                        } else if (clusterLabel.equals(TaggingLabels.FIGURE)) {
-                            processLayoutTokenSequenceTableFigure(localTokenization, entities);
-                        }
-                    }
-                }
+    /**
+     * Sequences of the selected structures of the body: paragraphs, items, section titles,
+     * tables and figures.
+     */
+    private List<TokenSequence> bodySequences(Document doc, AstroRetokenization retokenization) throws Exception {
+        List<TokenSequence> sequences = new ArrayList<>();
+        SortedSet<DocumentPiece> documentParts = doc.getDocumentPart(SegmentationLabels.BODY);
+        if (documentParts == null)
+            return sequences;
+        // full text processing
+        Pair<String, LayoutTokenization> featSeg = parsers.getFullTextParser().getBodyTextFeatured(doc, documentParts);
+        if (featSeg == null) {
+            // if featSeg is null, it usually means that no body segment is found in the
+            // document segmentation
+            return sequences;
+        }
+        String bodytext = featSeg.getLeft();
+
+        LayoutTokenization tokenizationBody = featSeg.getRight();
+        String rese = null;
+        if ( (bodytext != null) && (bodytext.trim().length() > 0) ) {               
+            rese = parsers.getFullTextParser().label(bodytext);
+        } else {
+            logger.debug("Fulltext model: The input to the CRF processing is empty");
+        }
+
+        TaggingTokenClusteror clusteror = new TaggingTokenClusteror(GrobidModels.FULLTEXT, rese, 
+            tokenizationBody.getTokenization(), true);
+        List<TaggingTokenCluster> clusters = clusteror.cluster();
+        for (TaggingTokenCluster cluster : clusters) {
+            if (cluster == null) {
+                continue;
             }
 
-            // we don't process references (although reference titles could be relevant)
-            // acknowledgement? 
+            TaggingLabel clusterLabel = cluster.getTaggingLabel();
+            Engine.getCntManager().i(clusterLabel);
+
+            List<LayoutToken> localTokenization = cluster.concatTokens();
+            if ((localTokenization == null) || (localTokenization.size() == 0))
+                continue;
 
-            // we can process annexes
-            documentParts = doc.getDocumentPart(SegmentationLabels.ANNEX);
-            if (documentParts != null) {
-                processDocumentPart(documentParts, doc, entities);
+            if (clusterLabel.equals(TaggingLabels.PARAGRAPH) || clusterLabel.equals(TaggingLabels.ITEM)
+                || clusterLabel.equals(TaggingLabels.SECTION) ) {
+                processLayoutTokenSequence(localTokenization, retokenization, sequences);
+            } else if (clusterLabel.equals(TaggingLabels.TABLE)) {
+                processLayoutTokenSequenceTableFigure(localTokenization, retokenization, sequences);
+            } else if (clusterLabel.equals(TaggingLabels.FIGURE)) {
+                processLayoutTokenSequenceTableFigure(localTokenization, retokenization, sequences);
             }
+        }
+        return sequences;
+    }
 
-            // footnotes are also relevant?
-            /*documentParts = doc.getDocumentPart(SegmentationLabel.FOOTNOTE);
-            if (documentParts != null) {
-                processDocumentPart(documentParts, doc, entities);
-            }*/
+    /**
+     * Sequences of the annexes. We don't process references (although reference titles could
+     * be relevant), nor the footnotes.
+     */
+    private List<TokenSequence> annexSequences(Document doc, AstroRetokenization retokenization) {
+        List<TokenSequence> sequences = new ArrayList<>();
+        SortedSet<DocumentPiece> documentParts = doc.getDocumentPart(SegmentationLabels.ANNEX);
+        if (documentParts != null) {
+            processDocumentPart(documentParts, doc, retokenization, sequences);
+        }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new GrobidException("Cannot process pdf file: " + file.getPath());
+        // footnotes are also relevant?
+        /*documentParts = doc.getDocumentPart(SegmentationLabel.FOOTNOTE);
+        if (documentParts != null) {
+            processDocumentPart(documentParts, doc, retokenization, sequences);
+        }*/
+        return sequences;
+    }
+
+    /**
+     * Results of the tasks, in the order of the tasks, the tasks being run on the zone executor
+     * if there is one and on the current thread otherwise. The exception of a failed task is
+     * thrown as is.
+     */
+    private <T> List<T> runTasks(List<Callable<T>> tasks) throws Exception {
+        List<T> results = new ArrayList<>(tasks.size());
+        ExecutorService executor = zoneExecutor;
+        if ((executor == null) || (tasks.size() == 1)) {
+            for (Callable<T> task : tasks)
+                results.add(task.call());
+            return results;
+        }
+        try {
+            for (Future<T> result : executor.invokeAll(tasks))
+                results.add(result.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw e;
         }
+        return results;
+    }
 
-        Collections.sort(entities);
-        return Pair.of(entities, doc);
+    /**
+     * Consecutive groups of the items, at most nbGroups, of about the same weight.
+     */
+    private static <T> List<List<T>> balancedGroups(List<T> items, ToIntFunction<T> weight, int nbGroups) {
+        List<List<T>> groups = new ArrayList<>();
+        nbGroups = Math.max(1, Math.min(nbGroups, items.size()));
+        long totalWeight = 0;
+        for (T item : items)
+            totalWeight += weight.applyAsInt(item);
+        int from = 0;
+        long cumulatedWeight = 0;
+        for (int i = 0; i < items.size(); i++) {
+            cumulatedWeight += weight.applyAsInt(items.get(i));
+            boolean last = (i == items.size() - 1);
+            if (last || (cumulatedWeight * nbGroups >= totalWeight * (groups.size() + 1))) {
+                groups.add(items.subList(from, i + 1));
+                from = i + 1;
+            }
+        }
+        return groups;
     }
 
     /**
-     * Process with the astro model a segment coming from the segmentation model
+     * Collect the sequence of a segment coming from the segmentation model
      */
-    private List<AstroEntity> processDocumentPart(SortedSet<DocumentPiece> documentParts, 
+    private List<TokenSequence> processDocumentPart(SortedSet<DocumentPiece> documentParts, 
                                                   Document doc,
-                                                  List<AstroEntity> entities) {
+                                                  AstroRetokenization retokenization,
+                                                  List<TokenSequence> sequences) {
         List<LayoutToken> tokenizationParts = doc.getTokenizationParts(documentParts, doc.getTokenizations());
-        return processLayoutTokenSequence(tokenizationParts, entities);
+        return processLayoutTokenSequence(tokenizationParts, retokenization, sequences);
     }
 
     /**
-     * Process with the astro model an arbitrary sequence of LayoutToken objects
+     * Collect an arbitrary sequence of LayoutToken objects
      */ 
-    private List<AstroEntity> processLayoutTokenSequence(List<LayoutToken> layoutTokens, 
-                                                            List<AstroEntity> entities) {
+    private List<TokenSequence> processLayoutTokenSequence(List<LayoutToken> layoutTokens, 
+                                                            AstroRetokenization retokenization,
+                                                            List<TokenSequence> sequences) {
         List<LayoutTokenization> layoutTokenizations = new ArrayList<LayoutTokenization>();
         layoutTokenizations.add(new LayoutTokenization(layoutTokens));
-        return processLayoutTokenSequences(layoutTokenizations, entities);
+        return processLayoutTokenSequences(layoutTokenizations, retokenization, sequences);
     }
 
     /**
-     * Process with the astro model a set of arbitrary sequence of LayoutTokenization
+     * Collect a set of arbitrary sequence of LayoutTokenization
      */ 
-    private List<AstroEntity> processLayoutTokenSequences(List<LayoutTokenization> layoutTokenizations, 
-                                                  List<AstroEntity> entities) {
+    private List<TokenSequence> processLayoutTokenSequences(List<LayoutTokenization> layoutTokenizations, 
+                                                  AstroRetokenization retokenization,
+                                                  List<TokenSequence> sequences) {
         for(LayoutTokenization layoutTokenization : layoutTokenizations) {
             List<LayoutToken> layoutTokens = layoutTokenization.getTokenization();
-            layoutTokens = AstroAnalyzer.getInstance().retokenizeLayoutTokens(layoutTokens);
+            layoutTokens = retokenization.retokenize(layoutTokens);
 
             if ( (layoutTokens == null) || (layoutTokens.size() == 0) )
                 continue;
@@ -293,28 +712,20 @@ public class AstroParser extends AbstractParser {
             // text of the selected segment
             String text = LayoutTokensUtil.toText(layoutTokens);
             
-            // positions for lexical match
-            List<OffsetPosition> astroTokenPositions = astroLexicon.tokenPositionsAstroNames(layoutTokens);
-            
-            // string representation of the feature matrix for CRF lib
-            String ress = addFeatures(layoutTokens, astroTokenPositions);     
-           
-            // labeled result from CRF lib
-            String res = label(ress);
-//System.out.println(res);
-            entities.addAll(extractAstroEntities(text, res, layoutTokens));
+            sequences.add(new TokenSequence(text, layoutTokens));
         }
-        return entities;
+        return sequences;
     }
 
     /**
-     * Process with the astro model a set of arbitrary sequence of LayoutTokenization
-     * from tables and figures, where the content is not structured (yet)
+     * Collect the lines of a set of arbitrary sequence of LayoutTokenization from tables and
+     * figures, where the content is not structured (yet)
      */ 
-    private List<AstroEntity> processLayoutTokenSequenceTableFigure(List<LayoutToken> layoutTokens, 
-                                                  List<AstroEntity> entities) {
+    private List<TokenSequence> processLayoutTokenSequenceTableFigure(List<LayoutToken> layoutTokens, 
+                                                  AstroRetokenization retokenization,
+                                                  List<TokenSequence> sequences) {
 
-        layoutTokens = AstroAnalyzer.getInstance().retokenizeLayoutTokens(layoutTokens);
+        layoutTokens = retokenization.retokenize(layoutTokens);
 
         int pos = 0;
         List<LayoutToken> localLayoutTokens = null;
@@ -334,21 +745,12 @@ public class AstroParser extends AbstractParser {
             // text of the selected segment
             String text = LayoutTokensUtil.toText(localLayoutTokens);
 
-            // positions for lexical match
-            List<OffsetPosition> astroTokenPositions = astroLexicon.tokenPositionsAstroNames(localLayoutTokens);
-            
-            // string representation of the feature matrix for CRF lib
-            String ress = addFeatures(localLayoutTokens, astroTokenPositions);     
-            
-            // labeled result from CRF lib
-            String res = label(ress);
-    //System.out.println(res);
-            entities.addAll(extractAstroEntities(text, res, localLayoutTokens));
+            sequences.add(new TokenSequence(text, localLayoutTokens));
             localLayoutTokens = null;
             pos++;
         }
        
-        return entities;
+        return sequences;
     }
 
 	/**
@@ -512,8 +914,9 @@ public class AstroParser extends AbstractParser {
                 }*/
 
                 // to store unit term positions
+                AstroLexicon astroLexicon = AstroLexicon.getInstance();
                 List<OffsetPosition> astroTokenPositions = astroLexicon.tokenPositionsAstroNames(tokens);
-                ress = addFeatures(tokens, astroTokenPositions);
+                ress = addFeatures(tokens, astroTokenPositions, astroLexicon);
                 String res = null;
                 try {
                     res = label(ress);
@@ -590,8 +993,9 @@ public class AstroParser extends AbstractParser {
                 }*/
 
                 // to store unit term positions
+                AstroLexicon astroLexicon = AstroLexicon.getInstance();
                 List<OffsetPosition> astroTokenPositions = astroLexicon.tokenPositionsAstroNames(tokenizations);
-                ress = addFeatures(tokenizations, astroTokenPositions);
+                ress = addFeatures(tokenizations, astroTokenPositions, astroLexicon);
                 String res = null;
                 try {
                     res = label(ress);
@@ -614,78 +1018,187 @@ public class AstroParser extends AbstractParser {
     @SuppressWarnings({"UnusedParameters"})
     public String addFeatures(List<LayoutToken> tokens,
                                List<OffsetPosition> astroTokenPositions) {
-        int totalLine = tokens.size();
-        int posit = 0;
-        int currentAstroIndex = 0;
-        List<OffsetPosition> localPositions = astroTokenPositions;
-        boolean isAstroPattern = false;
-        StringBuilder result = new StringBuilder();
+        return addFeatures(tokens, astroTokenPositions, AstroLexicon.getInstance());
+    }
+
+    /**
+     * Feature matrix of the tokens, with the lexicon snapshot used for the name positions.
+     */
+    public String addFeatures(List<LayoutToken> tokens,
+                               List<OffsetPosition> astroTokenPositions,
+                               AstroLexicon astroLexicon) {
+        AstroFeatureMatrix matrix = featureMatrix(tokens, astroTokenPositions, astroLexicon);
+        StringBuilder result = FEATURE_BUFFER.get();
+        result.setLength(0);
+        matrix.serialize(result);
+        String features = result.toString();
+        if (result.capacity() > MAX_FEATURE_BUFFER)
+            FEATURE_BUFFER.remove();
+        return features;
+    }
+
+    /**
+     * Feature vectors of the tokens, in memory, one row per token with features: the space
+     * and line break tokens have no row.
+     */
+    public AstroFeatureMatrix featureMatrix(List<LayoutToken> tokens,
+                                            List<OffsetPosition> astroTokenPositions,
+                                            AstroLexicon astroLexicon) {
+        AstroFeatureMatrix matrix = new AstroFeatureMatrix();
+        BitSet astroNameCoverage = FeaturesVectorAstro.astroNameCoverage(astroTokenPositions);
         try {
-            for (LayoutToken token : tokens) {
+            for (int posit = 0; posit < tokens.size(); posit++) {
+                LayoutToken token = tokens.get(posit);
                 if (token.getText().trim().equals("@newline")) {
-                    result.append("\n");
-                    posit++;
+                    matrix.addBreak(posit);
                     continue;
                 }
 
                 String text = token.getText();
                 if (text.equals(" ") || text.equals("\n")) {
-                    posit++;
+                    matrix.skip(posit);
                     continue;
                 }
 
                 // parano normalisation
                 text = UnicodeUtil.normaliseTextAndRemoveSpaces(text);
                 if (text.trim().length() == 0 ) {
-                    posit++;
+                    matrix.skip(posit);
                     continue;
                 }
 
-                // do we have a unit at position posit?
-                if ((localPositions != null) && (localPositions.size() > 0)) {
-                    for (int mm = currentAstroIndex; mm < localPositions.size(); mm++) {
-                        if ((posit >= localPositions.get(mm).start) && (posit <= localPositions.get(mm).end)) {
-                            isAstroPattern = true;
-                            currentAstroIndex = mm;
-                            break;
-                        } else if (posit < localPositions.get(mm).start) {
-                            isAstroPattern = false;
-                            break;
-                        } else if (posit > localPositions.get(mm).end) {
-                            continue;
-                        }
-                    }
-                }
+                // is the token part of an astro name?
+                boolean isAstroPattern = astroNameCoverage.get(posit);
 
                 FeaturesVectorAstro featuresVector =
                         FeaturesVectorAstro.addFeaturesAstro(text, null,
                                 astroLexicon.inAstroDictionary(token.getText()), isAstroPattern);
-                result.append(featuresVector.printVector());
-                result.append("\n");
-                posit++;
-                isAstroPattern = false;
+                matrix.add(featuresVector, posit);
             }
         } catch (Exception e) {
             throw new GrobidException("An exception occured while running Grobid.", e);
         }
-        return result.toString();
+        return matrix;
+    }
+
+    /**
+     * Label codes of the tokens, as defined in AstroTaggingLabels, aligned with the list of
+     * tokens: the label of the token i is at index i, LABEL_NONE for the tokens which are not
+     * labeled (spaces, line breaks). The feature matrix is given to the labeler in memory.
+     */
+    public int[] labelTokens(List<LayoutToken> tokens) {
+        if ((tokens == null) || (tokens.size() == 0))
+            return new int[0];
+        AstroLexicon astroLexicon = AstroLexicon.getInstance();
+        List<OffsetPosition> astroTokenPositions = astroLexicon.tokenPositionsAstroNames(tokens);
+        AstroFeatureMatrix matrix = featureMatrix(tokens, astroTokenPositions, astroLexicon);
+        return matrix.alignToTokens(labelMatrix(matrix));
+    }
+
+    private int[] labelMatrix(AstroFeatureMatrix matrix) {
+        return labelMatrices(Collections.singletonList(matrix)).get(0);
+    }
+
+    /**
+     * Labels of the matrices. The matrices longer than the chunk size are split into chunks,
+     * and the chunks are then labeled in parallel on the chunk pool.
+     */
+    private List<int[]> labelMatrices(List<AstroFeatureMatrix> matrices) {
+        if (matrices.size() == 0)
+            return Collections.emptyList();
+        AstroSequenceChunker chunker = this.chunker;
+        if (chunker == null)
+            return labelBatch(matrices);
+
+        List<List<AstroSequenceChunker.Chunk>> matrixChunks = new ArrayList<>(matrices.size());
+        List<AstroFeatureMatrix> parts = new ArrayList<>();
+        int nbChunks = 0;
+        for (AstroFeatureMatrix matrix : matrices) {
+            List<AstroSequenceChunker.Chunk> chunks = chunker.split(matrix);
+            matrixChunks.add(chunks);
+            for (AstroSequenceChunker.Chunk chunk : chunks)
+                parts.add(chunk.matrix);
+            if (chunks.size() > 1)
+                nbChunks += chunks.size();
+        }
+        if (nbChunks == 0)
+            return labelBatch(matrices);
+        AstroMetrics.getInstance().add(METRIC_LABEL_CHUNKS, nbChunks);
+
+        List<int[]> partLabels = labelParallel(parts);
+        List<int[]> labels = new ArrayList<>(matrices.size());
+        int part = 0;
+        for (int i = 0; i < matrices.size(); i++) {
+            List<AstroSequenceChunker.Chunk> chunks = matrixChunks.get(i);
+            if (chunks.size() == 1)
+                labels.add(partLabels.get(part));
+            else
+                labels.add(chunker.merge(matrices.get(i).size(), chunks, partLabels.subList(part, part + chunks.size())));
+            part += chunks.size();
+        }
+        return labels;
+    }
+
+    /**
+     * Labels of the matrices, labeled by groups of about the same number of rows, one group
+     * per thread of the chunk pool.
+     */
+    private List<int[]> labelParallel(List<AstroFeatureMatrix> matrices) {
+        List<Callable<List<int[]>>> tasks = new ArrayList<>();
+        for (List<AstroFeatureMatrix> group : balancedGroups(matrices, AstroFeatureMatrix::size, chunkPool.getParallelism()))
+            tasks.add(() -> labelBatch(group));
+        if (tasks.size() == 1)
+            return labelBatch(matrices);
+
+        List<int[]> labels = new ArrayList<>(matrices.size());
+        try {
+            for (Future<List<int[]>> result : chunkPool.invokeAll(tasks))
+                labels.addAll(result.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GrobidException("Interrupted while labeling the astro sequences.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new GrobidException("CRF labeling for astro parsing failed.", e.getCause());
+        }
+        return labels;
+    }
+
+    private List<int[]> labelBatch(List<AstroFeatureMatrix> matrices) {
+        AstroMetrics.getInstance().increment(METRIC_LABEL_CALLS);
+        try {
+            return labeler.label(matrices);
+        } catch (GrobidException e) {
+            // AstroLabelerBusyException included, sent back as is
+            throw e;
+        } catch (Exception e) {
+            throw new GrobidException("CRF labeling for astro parsing failed.", e);
+        }
     }
 
     /**
      * Extract identified astronomical entities from a CRF labelled text.
+     *
+     * Offsets of the entities are positions in the text of the sequence of tokens, as given
+     * by LayoutTokensUtil.toText(tokenizations).
      */
     public List<AstroEntity> extractAstroEntities(String text,
                                                 	String result,
                                                 	List<LayoutToken> tokenizations) {
         List<AstroEntity> entities = new ArrayList<>();
+        if ( (tokenizations == null) || (tokenizations.size() == 0) )
+            return entities;
 
         TaggingTokenClusteror clusteror = new TaggingTokenClusteror(GrobidModels.ASTRO, result, tokenizations);
         List<TaggingTokenCluster> clusters = clusteror.cluster();
 
-        AstroEntity currentEntity = null;
-        AstroLexicon.Astro_Type openEntity = null;
-
-        int pos = 0; // position in term of characters for creating the offsets
+        // position of every token of the sequence in the text of the sequence
+        int[] textOffsets = textOffsets(tokenizations);
+        Map<LayoutToken, Integer> tokenIndexes = new IdentityHashMap<>(tokenizations.size());
+        for (int i = 0; i < tokenizations.size(); i++)
+            tokenIndexes.put(tokenizations.get(i), i);
+        AstroLexicon astroLexicon = AstroLexicon.getInstance();
 
         for (TaggingTokenCluster cluster : clusters) {
             if (cluster == null) {
@@ -693,58 +1206,113 @@ public class AstroParser extends AbstractParser {
             }
 
             TaggingLabel clusterLabel = cluster.getTaggingLabel();
-            List<LayoutToken> theTokens = cluster.concatTokens();
-            String clusterContent = LayoutTokensUtil.toText(cluster.concatTokens()).trim();
+            if (!clusterLabel.equals(AstroTaggingLabels.OBJECT))
+                continue;
 
-            
-            if ((pos < text.length()-1) && (text.charAt(pos) == ' '))
-                pos += 1;
-            if ((pos < text.length()-1) && (text.charAt(pos) == '\n'))
-                pos += 1;
-            
-            int endPos = pos;
-            boolean start = true;
-            for (LayoutToken token : theTokens) {
-                if (token.getText() != null) {
-                    if (start && token.getText().equals(" ")) {
-                        pos++;
-                        endPos++;
-                        continue;
-                    }
-                    if (start)
-                        start = false;
-                    endPos += token.getText().length();
-                }
-            }
+            List<LayoutToken> theTokens = cluster.concatTokens();
 
-            if ((endPos > 0) && (text.length() >= endPos) && (text.charAt(endPos-1) == '\n'))
-        		endPos--;
-            if ((endPos > 0) && (text.length() >= endPos) && (text.charAt(endPos-1) == ' '))
-                endPos--;
+            // leading and trailing spaces are not part of the entity
+            int first = 0;
+            while ((first < theTokens.size()) && isBlankToken(theTokens.get(first)))
+                first++;
+            int last = theTokens.size() - 1;
+            while ((last > first) && isBlankToken(theTokens.get(last)))
+                last--;
+            if (first >= theTokens.size())
+                continue;
+            Integer index = tokenIndexes.get(theTokens.get(first));
+            if (index == null)
+                continue;
 
-            if (clusterLabel.equals(AstroTaggingLabels.OBJECT)) {
-            	
-            	if (currentEntity == null) {
-                    currentEntity = new AstroEntity();
-                }
+            entities.add(objectEntity(theTokens, first, last, textOffsets[index], astroLexicon));
+        }
 
-                currentEntity.setRawForm(clusterContent);
-                currentEntity.setOffsetStart(pos);
-                currentEntity.setOffsetEnd(endPos);
-                currentEntity.setType(AstroLexicon.Astro_Type.OBJECT);
-                currentEntity.setTokens(theTokens);
+        return entities;
+    }
 
-				List<BoundingBox> boundingBoxes = BoundingBoxCalculator.calculate(cluster.concatTokens());
-				currentEntity.setBoundingBoxes(boundingBoxes);
+    /**
+     * Extract the astronomical entities from the labels of the tokens, as given by
+     * AstroFeatureMatrix.alignToTokens(), without writing and clustering a labeled result:
+     * an entity starts with a token labeled I-<object>, or <object> after a token labeled
+     * <other>, and the tokens without label (spaces) continue the current entity.
+     *
+     * The offsets are positions in LayoutTokensUtil.toText(tokens), as in
+     * extractAstroEntities(text, result, tokenizations), and not the offsets of the layout
+     * tokens, which are not contiguous for the zones of a PDF.
+     */
+    public List<AstroEntity> extractAstroEntities(List<LayoutToken> tokens, int[] tokenLabels) {
+        return extractAstroEntities(tokens, 0, Math.min(tokens.size(), tokenLabels.length), tokenLabels);
+    }
 
-				entities.add(currentEntity);
-				currentEntity = null;
+    /**
+     * Entities of the nbTokens tokens of the store from storeStart, the label of the token
+     * storeStart + i being tokenLabels[i]. The entities reference the store.
+     */
+    private static List<AstroEntity> extractAstroEntities(List<LayoutToken> store, int storeStart, int nbTokens,
+                                                          int[] tokenLabels) {
+        List<AstroEntity> entities = null;
+        AstroLexicon astroLexicon = null;
+        int first = -1;
+        int last = -1;
+        // position of the token i in the text of the sequence, and of the current entity
+        int offset = 0;
+        int firstOffset = 0;
+        for (int i = 0; i <= nbTokens; i++) {
+            int tokenOffset = offset;
+            if (i < nbTokens) {
+                String text = store.get(storeStart + i).getText();
+                offset += (text == null) ? 0 : text.length();
+            }
+            int label = (i < nbTokens) ? tokenLabels[i] : AstroTaggingLabels.LABEL_OTHER;
+            if (label == AstroTaggingLabels.LABEL_NONE)
+                continue;
+            if ((label == AstroTaggingLabels.LABEL_OBJECT_INSIDE) && (first != -1)) {
+                last = i;
+                continue;
+            }
+            if (first != -1) {
+                if (entities == null) {
+                    entities = new ArrayList<>();
+                    astroLexicon = AstroLexicon.getInstance();
+                }
+                entities.add(objectEntity(store, storeStart + first, storeStart + last, firstOffset, astroLexicon));
+                first = -1;
+            }
+            if ((label == AstroTaggingLabels.LABEL_OBJECT_BEGIN) || (label == AstroTaggingLabels.LABEL_OBJECT_INSIDE)) {
+                first = i;
+                last = i;
+                firstOffset = tokenOffset;
             }
-            
-            pos = endPos;
         }
+        return (entities == null) ? Collections.<AstroEntity>emptyList() : entities;
+    }
 
-        return entities;
+    /**
+     * Object entity of the tokens of the store from first to last, inclusive, starting at
+     * offsetStart in the text of the sequence. The entity references the store, its bounding
+     * boxes are computed from the tokens when asked.
+     */
+    private static AstroEntity objectEntity(List<LayoutToken> store, int first, int last, int offsetStart,
+                                            AstroLexicon astroLexicon) {
+        StringBuilder rawForm = new StringBuilder();
+        for (int i = first; i <= last; i++)
+            rawForm.append(store.get(i).getText());
+
+        AstroEntity currentEntity = new AstroEntity();
+        currentEntity.setRawForm(rawForm.toString().trim());
+        currentEntity.setOffsetStart(offsetStart);
+        currentEntity.setOffsetEnd(offsetStart + rawForm.length());
+        currentEntity.setType(AstroLexicon.Astro_Type.OBJECT);
+        currentEntity.setTokens(store, first, last + 1);
+
+        // lexicon name of which the mention is a spacing/case variant
+        currentEntity.setNormalizedForm(astroLexicon.getCanonicalName(currentEntity.getRawForm()));
+        return currentEntity;
+    }
+
+
+    private static boolean isBlankToken(LayoutToken token) {
+        return (token.getText() == null) || (token.getText().trim().length() == 0);
     }
 
 	/**
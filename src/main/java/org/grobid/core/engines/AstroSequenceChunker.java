@@ -0,0 +1,111 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.engines.label.AstroTaggingLabels;
+import org.grobid.core.features.AstroFeatureMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Split of the long feature matrices into chunks labeled separately, so that the memory of
+ * the decoder does not grow with the length of a whole document zone and the chunks can be
+ * labeled on several cores.
+ *
+ * A matrix is cut at the end of a sentence, or at a line break, before the maximum length
+ * of a chunk when possible. Every chunk is labeled with a few rows of context before and
+ * after it, and only the labels of its own rows are kept, so the labels of the chunks are
+ * merged back into the labels of the whole matrix, an entity across a cut being labeled as
+ * one entity.
+ */
+public class AstroSequenceChunker {
+
+    private final int maxLength;
+    private final int overlap;
+
+    /**
+     * Rows of a chunk in the whole matrix: the chunk labels the rows from start to end, and
+     * its matrix has the rows from contextStart to contextEnd.
+     */
+    public static final class Chunk {
+        public final AstroFeatureMatrix matrix;
+        final int contextStart;
+        final int start;
+        final int end;
+
+        Chunk(AstroFeatureMatrix matrix, int contextStart, int start, int end) {
+            this.matrix = matrix;
+            this.contextStart = contextStart;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * @param maxLength maximum number of rows of a chunk, without the context rows
+     * @param overlap number of context rows before and after a chunk
+     */
+    public AstroSequenceChunker(int maxLength, int overlap) {
+        this.maxLength = Math.max(maxLength, 2);
+        this.overlap = Math.max(overlap, 0);
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Chunks of the matrix, a single chunk with the matrix itself if the matrix is not longer
+     * than the maximum length.
+     */
+    public List<Chunk> split(AstroFeatureMatrix matrix) {
+        List<Chunk> chunks = new ArrayList<>();
+        int size = matrix.size();
+        int start = 0;
+        while (size - start > maxLength) {
+            int end = start + maxLength;
+            // last sentence end in the second half of the chunk
+            for (int row = start + maxLength; row > start + maxLength / 2; row--) {
+                if (isSentenceStart(matrix, row)) {
+                    end = row;
+                    break;
+                }
+            }
+            int contextStart = Math.max(0, start - overlap);
+            chunks.add(new Chunk(matrix.subMatrix(contextStart, Math.min(size, end + overlap)),
+                contextStart, start, end));
+            start = end;
+        }
+        if (start == 0) {
+            chunks.add(new Chunk(matrix, 0, 0, size));
+        } else {
+            int contextStart = Math.max(0, start - overlap);
+            chunks.add(new Chunk(matrix.subMatrix(contextStart, size), contextStart, start, size));
+        }
+        return chunks;
+    }
+
+    /**
+     * Labels of the rows of the whole matrix from the labels of its chunks.
+     */
+    public int[] merge(int size, List<Chunk> chunks, List<int[]> chunkLabels) {
+        int[] labels = new int[size];
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            int[] rowLabels = chunkLabels.get(i);
+            System.arraycopy(rowLabels, chunk.start - chunk.contextStart, labels, chunk.start, chunk.end - chunk.start);
+            // an entity cannot continue a token labeled <other> before the cut
+            if ((chunk.start > 0) && (labels[chunk.start] == AstroTaggingLabels.LABEL_OBJECT_INSIDE)
+                && (labels[chunk.start - 1] == AstroTaggingLabels.LABEL_OTHER)) {
+                labels[chunk.start] = AstroTaggingLabels.LABEL_OBJECT_BEGIN;
+            }
+        }
+        return labels;
+    }
+
+    private static boolean isSentenceStart(AstroFeatureMatrix matrix, int row) {
+        if (matrix.startsSequence(row))
+            return true;
+        String previous = matrix.getVector(row - 1).string;
+        return previous.equals(".") || previous.equals("!") || previous.equals("?");
+    }
+}
@@ -0,0 +1,107 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.exceptions.GrobidException;
+import org.grobid.core.features.AstroFeatureMatrix;
+import org.grobid.core.features.FeaturesVectorAstro;
+
+import java.util.BitSet;
+
+/**
+ * Gate deciding from the features of a sequence whether the sequence is given to the CRF
+ * model: a sequence without any token which could start an entity is labeled <other> by the
+ * model almost always, and is skipped.
+ *
+ * - OFF: every non-empty sequence is labeled.
+ * - CONSERVATIVE: a sequence is labeled if one of its tokens has an upper case letter, has a
+ * digit, or is in the astro vocabulary or in a lexicon name.
+ * - AGGRESSIVE: a sequence is labeled if one of its tokens is in a lexicon name, mixes letters
+ * and digits, has several upper case letters, or is capitalized and does not start a sentence.
+ *
+ * The tokens of the catalog designations, which are recognized without the model, are not
+ * considered. The recall lost by a gate on the evaluation corpus is given by the GATE mode of
+ * AstroTrainerRunner, and no gate is used unless one is configured.
+ */
+public enum AstroSequenceGate {
+    OFF, CONSERVATIVE, AGGRESSIVE;
+
+    /**
+     * Gate of a configuration name, case insensitive, OFF if the name is null.
+     */
+    public static AstroSequenceGate fromName(String name) {
+        if (name == null)
+            return OFF;
+        for (AstroSequenceGate gate : values()) {
+            if (gate.name().equalsIgnoreCase(name))
+                return gate;
+        }
+        throw new GrobidException("Unknown labeling gate: " + name);
+    }
+
+    /**
+     * True if the sequence of the matrix has to be labeled by the model.
+     *
+     * @param excludedTokens indexes of the tokens of the sequence which are not considered
+     */
+    public boolean isCandidate(AstroFeatureMatrix matrix, BitSet excludedTokens) {
+        if (matrix.size() == 0)
+            return false;
+        if (this == OFF)
+            return true;
+        for (int row = 0; row < matrix.size(); row++) {
+            if (excludedTokens.get(matrix.getTokenIndex(row)))
+                continue;
+            FeaturesVectorAstro vector = matrix.getVector(row);
+            if ((this == CONSERVATIVE) ? isConservativeCandidate(vector) : isAggressiveCandidate(matrix, row, vector))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isConservativeCandidate(FeaturesVectorAstro vector) {
+        return vector.astroName || vector.isAstroToken || !vector.digit.equals("NODIGIT")
+            || (countUpperCase(vector.string) > 0);
+    }
+
+    private static boolean isAggressiveCandidate(AstroFeatureMatrix matrix, int row, FeaturesVectorAstro vector) {
+        if (vector.isAstroToken || isFollowedByDigits(matrix, row))
+            return true;
+        int nbUpperCase = countUpperCase(vector.string);
+        if (nbUpperCase > 1)
+            return true;
+        return (nbUpperCase == 1) && Character.isUpperCase(vector.string.charAt(0)) && !startsSentence(matrix, row);
+    }
+
+    // letters directly followed by digits in the same sequence: the tokenizer splits a token
+    // such as KIC8462852 into KIC and 8462852
+    private static boolean isFollowedByDigits(AstroFeatureMatrix matrix, int row) {
+        if ((row + 1 >= matrix.size()) || matrix.startsSequence(row + 1)
+                || (matrix.getTokenIndex(row + 1) != matrix.getTokenIndex(row) + 1))
+            return false;
+        return containsLetter(matrix.getVector(row).string)
+            && matrix.getVector(row + 1).digit.equals("ALLDIGIT");
+    }
+
+    private static boolean containsLetter(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetter(text.charAt(i)))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean startsSentence(AstroFeatureMatrix matrix, int row) {
+        if (matrix.startsSequence(row))
+            return true;
+        String previous = matrix.getVector(row - 1).string;
+        return previous.equals(".") || previous.equals("!") || previous.equals("?") || previous.equals(":");
+    }
+
+    private static int countUpperCase(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isUpperCase(text.charAt(i)))
+                count++;
+        }
+        return count;
+    }
+}
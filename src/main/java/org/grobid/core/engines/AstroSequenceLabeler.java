@@ -0,0 +1,28 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.features.AstroFeatureMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Labeling of a feature matrix by the astro sequence labeling model.
+ */
+public interface AstroSequenceLabeler {
+
+    /**
+     * Label codes of the rows of the matrix, as defined in AstroTaggingLabels.
+     */
+    int[] label(AstroFeatureMatrix matrix);
+
+    /**
+     * Label codes of the rows of several matrices, labeled as independent sequences. A labeler
+     * with a cost per call labels them in a single call.
+     */
+    default List<int[]> label(List<AstroFeatureMatrix> matrices) {
+        List<int[]> labels = new ArrayList<>(matrices.size());
+        for (AstroFeatureMatrix matrix : matrices)
+            labels.add(label(matrix));
+        return labels;
+    }
+}
@@ -0,0 +1,202 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.data.AstroEntity;
+import org.grobid.core.utilities.AstroMetrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Micro-batching of the texts of concurrent requests: the texts submitted within a few
+ * milliseconds, or up to a maximum number of texts, are processed together by
+ * AstroParser.processTexts(), so that they are labeled in a single call.
+ *
+ * A request waits at most the batch delay before its batch is processed. The batches are
+ * processed by a pool of threads, so that the next batch is collected while the previous
+ * ones are labeled. If a batch fails, its texts are processed again one by one, so that a
+ * text failing does not fail the other texts of its batch.
+ *
+ * At most a given number of texts are waiting or being processed, the texts submitted over
+ * this limit are rejected with an AstroLabelerBusyException, like the requests waiting for a
+ * labeler, and are answered with 503 by the service.
+ */
+public class AstroTextBatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AstroTextBatcher.class);
+
+    // names of the metrics of the batching
+    public static final String METRIC_BATCHES = "text.batch.batches";
+    public static final String METRIC_BATCHED_TEXTS = "text.batch.texts";
+    public static final String METRIC_REJECTED_TEXTS = "text.batch.rejected";
+    public static final String METRIC_FAILED_BATCHES = "text.batch.failed";
+
+    private static volatile AstroTextBatcher instance = null;
+
+    private final long delayNanos;
+    private final int maxSize;
+    private final int maxPending;
+    private final long timeout;
+    private final Function<List<String>, List<List<AstroEntity>>> processor;
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService workers;
+
+    // texts submitted and not processed yet
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private static final class Request {
+        final String text;
+        final CompletableFuture<List<AstroEntity>> result = new CompletableFuture<>();
+
+        Request(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * Batcher of the service, null if the texts are not batched.
+     */
+    public static AstroTextBatcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * Start batching the texts with AstroParser, with a delay in milliseconds, a maximum
+     * number of texts per batch, a maximum number of texts waiting or being processed and
+     * the maximum time in milliseconds a request waits for its result. Nothing is done if
+     * the delay is 0.
+     */
+    public static synchronized void start(long delay, int maxSize, int maxPending, long timeout) {
+        if ((delay <= 0) || (instance != null))
+            return;
+        AstroParser parser = AstroParser.getInstance();
+        instance = new AstroTextBatcher(delay, maxSize, maxPending, timeout, texts -> {
+            try {
+                return parser.processTexts(texts);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        LOGGER.info("Batching of the texts: " + delay + " ms, " + maxSize + " texts per batch, at most " + 
+            maxPending + " texts waiting");
+    }
+
+    AstroTextBatcher(long delay, int maxSize, int maxPending, long timeout,
+                     Function<List<String>, List<List<AstroEntity>>> processor) {
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+        this.maxSize = Math.max(maxSize, 1);
+        this.maxPending = Math.max(maxPending, 1);
+        this.timeout = timeout;
+        this.processor = processor;
+        this.workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "astro-text-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Thread collector = new Thread(this::collect, "astro-text-batcher");
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    /**
+     * Maximum time in milliseconds a request waits for the result of its text.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Entities of the text, as given by AstroParser.processText(), when the batch of the text
+     * is processed.
+     *
+     * @throws AstroLabelerBusyException if the maximum number of texts are already waiting
+     */
+    public CompletableFuture<List<AstroEntity>> submit(String text) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            AstroMetrics.getInstance().increment(METRIC_REJECTED_TEXTS);
+            throw new AstroLabelerBusyException("Too many texts waiting to be processed");
+        }
+        Request request = new Request(text);
+        queue.add(request);
+        return request.result;
+    }
+
+    private void collect() {
+        while (true) {
+            List<Request> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + delayNanos;
+                while (batch.size() < maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0)
+                        break;
+                    Request request = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (request == null)
+                        break;
+                    batch.add(request);
+                }
+                queue.drainTo(batch, maxSize - batch.size());
+            } catch (InterruptedException e) {
+                LOGGER.warn("Batching of the texts interrupted.");
+                for (Request request : batch)
+                    request.result.completeExceptionally(e);
+                pending.addAndGet(-batch.size());
+                Thread.currentThread().interrupt();
+                return;
+            }
+            workers.execute(() -> process(batch));
+        }
+    }
+
+    private void process(List<Request> batch) {
+        AstroMetrics.getInstance().increment(METRIC_BATCHES);
+        AstroMetrics.getInstance().add(METRIC_BATCHED_TEXTS, batch.size());
+        try {
+            List<String> texts = new ArrayList<>(batch.size());
+            for (Request request : batch)
+                texts.add(request.text);
+            List<List<AstroEntity>> results = processor.apply(texts);
+            for (int i = 0; i < batch.size(); i++)
+                batch.get(i).result.complete(results.get(i));
+        } catch (AstroLabelerBusyException e) {
+            // no labeler available, processing the texts one by one would not help
+            for (Request request : batch)
+                request.result.completeExceptionally(e);
+        } catch (Throwable e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+            } else {
+                AstroMetrics.getInstance().increment(METRIC_FAILED_BATCHES);
+                LOGGER.warn("Processing of a batch of " + batch.size() + " texts failed, the texts are processed one by one", e);
+                for (Request request : batch)
+                    processAlone(request);
+            }
+        } finally {
+            pending.addAndGet(-batch.size());
+        }
+    }
+
+    private void processAlone(Request request) {
+        try {
+            request.result.complete(processor.apply(Collections.singletonList(request.text)).get(0));
+        } catch (Throwable e) {
+            request.result.completeExceptionally(e);
+        }
+    }
+}
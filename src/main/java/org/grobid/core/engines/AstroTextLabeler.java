@@ -0,0 +1,80 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.engines.label.AstroTaggingLabels;
+import org.grobid.core.exceptions.GrobidException;
+import org.grobid.core.features.AstroFeatureMatrix;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Labeler going through the text format of the CRF library: the matrices are serialized, labeled
+ * and the label of every row is read from the last column of the labeled text.
+ *
+ * Several matrices are labeled with a single call, separated by an empty line so that they are
+ * labeled as independent sequences. The labels are sent back to their matrix by counting the
+ * non-empty lines of the labeled text.
+ */
+public class AstroTextLabeler implements AstroSequenceLabeler {
+
+    private final Function<String, String> tagger;
+
+    public AstroTextLabeler(Function<String, String> tagger) {
+        this.tagger = tagger;
+    }
+
+    @Override
+    public int[] label(AstroFeatureMatrix matrix) {
+        return label(Collections.singletonList(matrix)).get(0);
+    }
+
+    @Override
+    public List<int[]> label(List<AstroFeatureMatrix> matrices) {
+        List<int[]> labels = new ArrayList<>(matrices.size());
+        StringBuilder features = new StringBuilder();
+        int nbRows = 0;
+        for (AstroFeatureMatrix matrix : matrices) {
+            labels.add(new int[matrix.size()]);
+            if (matrix.size() == 0)
+                continue;
+            if (features.length() > 0)
+                features.append('\n');
+            matrix.serialize(features);
+            nbRows += matrix.size();
+        }
+        if (nbRows == 0)
+            return labels;
+        String result = tagger.apply(features.toString());
+
+        int current = 0;
+        int row = 0;
+        int nbLabeled = 0;
+        int lineStart = 0;
+        while ((lineStart < result.length()) && (nbLabeled < nbRows)) {
+            int lineEnd = result.indexOf('\n', lineStart);
+            if (lineEnd == -1)
+                lineEnd = result.length();
+            int end = lineEnd;
+            while ((end > lineStart) && Character.isWhitespace(result.charAt(end - 1)))
+                end--;
+            if (end > lineStart) {
+                while (row == labels.get(current).length) {
+                    current++;
+                    row = 0;
+                }
+                int start = end;
+                while ((start > lineStart) && !Character.isWhitespace(result.charAt(start - 1)))
+                    start--;
+                labels.get(current)[row++] = AstroTaggingLabels.labelCode(result.substring(start, end));
+                nbLabeled++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (nbLabeled != nbRows) {
+            throw new GrobidException("The labeled sequences have " + nbLabeled + " tokens, " + nbRows + " expected.");
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,455 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.engines.label.AstroTaggingLabels;
+import org.grobid.core.exceptions.GrobidResourceException;
+import org.grobid.core.features.AstroFeatureMatrix;
+import org.grobid.core.lexicon.AstroStringTable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Viterbi decoding of a CRF model trained with Wapiti, in Java, to label the feature matrices
+ * without going through the native library.
+ *
+ * The model.wapiti file is loaded in primitive arrays: the feature patterns compiled from the
+ * template, the table of the observations and the weights. The model is immutable after
+ * loading and every thread decodes with its own buffers, so the labeler can be shared by all
+ * the threads without lock. The decoding does not allocate per token.
+ *
+ * The scores are summed in the order of Wapiti (unigram features in the order of the
+ * patterns, then the bigram features), so that the labels are the same as the ones of the
+ * native library.
+ */
+public class AstroViterbiLabeler implements AstroSequenceLabeler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AstroViterbiLabeler.class);
+
+    // name of the labeler in the configuration, as alternative to "wapiti"
+    public static final String ENGINE_NAME = "java";
+
+    // kinds of the observations, given by the first char of their pattern
+    private static final int UNIGRAM = 1;
+    private static final int BIGRAM = 2;
+
+    // values of the columns outside the sequence, as written by Wapiti
+    private static final String[] BEFORE = {"_x-1", "_x-2", "_x-3", "_x-4", "_x-#"};
+    private static final String[] AFTER = {"_x+1", "_x+2", "_x+3", "_x+4", "_x+#"};
+
+    // number of labels, and label codes of the labels of the model
+    private final int nbLabels;
+    private final int[] labelCodes;
+
+    private final FeaturePattern[] patterns;
+
+    // observations of the model, and offsets of their unigram and bigram weights in the
+    // weights (-1 if none) by observation index in the table
+    private final AstroStringTable observations;
+    private final int[] unigramOffsets;
+    private final int[] bigramOffsets;
+    private final double[] weights;
+
+    private final ThreadLocal<Buffers> buffers;
+
+    /**
+     * Pattern of the template, as a sequence of literal strings and references to a column
+     * of a token relatively to the current token.
+     */
+    private static final class FeaturePattern {
+        final int kind;
+
+        // literal of every item, or null for a column reference
+        final String[] literals;
+        final int[] offsets;
+        final int[] columns;
+        final boolean[] lowerCase;
+
+        FeaturePattern(int kind, String[] literals, int[] offsets, int[] columns, boolean[] lowerCase) {
+            this.kind = kind;
+            this.literals = literals;
+            this.offsets = offsets;
+            this.columns = columns;
+            this.lowerCase = lowerCase;
+        }
+    }
+
+    /**
+     * Decoding buffers of a thread.
+     */
+    private static final class Buffers {
+        final StringBuilder observation = new StringBuilder(128);
+        final double[] unigramScores;
+        final double[] bigramScores;
+        final double[] current;
+        final double[] previous;
+        int[] backPointers;
+
+        Buffers(int nbLabels) {
+            unigramScores = new double[nbLabels];
+            bigramScores = new double[nbLabels * nbLabels];
+            current = new double[nbLabels];
+            previous = new double[nbLabels];
+            backPointers = new int[nbLabels * 256];
+        }
+    }
+
+    private AstroViterbiLabeler(int[] labelCodes, FeaturePattern[] patterns, AstroStringTable observations,
+                                int[] unigramOffsets, int[] bigramOffsets, double[] weights) {
+        this.nbLabels = labelCodes.length;
+        this.labelCodes = labelCodes;
+        this.patterns = patterns;
+        this.observations = observations;
+        this.unigramOffsets = unigramOffsets;
+        this.bigramOffsets = bigramOffsets;
+        this.weights = weights;
+        this.buffers = ThreadLocal.withInitial(() -> new Buffers(nbLabels));
+    }
+
+    /**
+     * Load a CRF model saved by Wapiti (model.wapiti).
+     */
+    public static AstroViterbiLabeler load(File modelFile) {
+        long start = System.currentTimeMillis();
+        try (InputStream input = new BufferedInputStream(new FileInputStream(modelFile), 1 << 16)) {
+            AstroViterbiLabeler labeler = read(input);
+            LOGGER.info("Wapiti model " + modelFile.getPath() + " loaded for the Java labeler in " +
+                (System.currentTimeMillis() - start) + " ms: " + labeler.observations.size() +
+                " observations, " + labeler.weights.length + " features");
+            return labeler;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new GrobidResourceException("Cannot load the Wapiti model " + modelFile.getPath(), e);
+        }
+    }
+
+    static AstroViterbiLabeler read(InputStream input) throws IOException {
+        // #mdl#<type>#<number of active features>, the type being absent in old models
+        String[] header = readLine(input).split("#");
+        if ((header.length == 4) && !header[2].equals("2")) {
+            throw new IllegalArgumentException("Only CRF models can be decoded, model type: " + header[2]);
+        }
+        int nbActive = Integer.parseInt(header[header.length - 1]);
+
+        // #rdr#<number of patterns>/<number of columns>[/<autouni>]
+        String[] reader = readLine(input).substring("#rdr#".length()).split("/");
+        if ((reader.length > 2) && !reader[2].equals("0")) {
+            throw new IllegalArgumentException("Models with automatic unigrams are not supported");
+        }
+        int nbPatterns = Integer.parseInt(reader[0]);
+        FeaturePattern[] patterns = new FeaturePattern[nbPatterns];
+        for (int i = 0; i < nbPatterns; i++)
+            patterns[i] = compile(readString(input));
+
+        List<String> labels = readQuarks(input);
+        int[] labelCodes = new int[labels.size()];
+        for (int y = 0; y < labelCodes.length; y++)
+            labelCodes[y] = AstroTaggingLabels.labelCode(labels.get(y));
+        int nbLabels = labelCodes.length;
+
+        // the features of the observations follow the order of the observation identifiers
+        List<String> observationKeys = readQuarks(input);
+        for (int i = 0; i < observationKeys.size(); i++)
+            observationKeys.set(i, lowerCaseKind(observationKeys.get(i)));
+        AstroStringTable observations = AstroStringTable.build(observationKeys);
+        if (observations.size() != observationKeys.size())
+            throw new IllegalArgumentException("Duplicated observations in the model");
+        int[] unigramOffsets = new int[observationKeys.size()];
+        int[] bigramOffsets = new int[observationKeys.size()];
+        long nbFeatures = 0;
+        for (String key : observationKeys) {
+            int index = observations.indexOf(key);
+            int kind = kind(key);
+            unigramOffsets[index] = -1;
+            bigramOffsets[index] = -1;
+            if ((kind & UNIGRAM) != 0) {
+                unigramOffsets[index] = (int) nbFeatures;
+                nbFeatures += nbLabels;
+            }
+            if ((kind & BIGRAM) != 0) {
+                bigramOffsets[index] = (int) nbFeatures;
+                nbFeatures += nbLabels * nbLabels;
+            }
+        }
+        if (nbFeatures > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many features: " + nbFeatures);
+        observationKeys = null;
+
+        // <feature>=<weight as hexadecimal float>, for the non-null weights
+        double[] weights = new double[(int) nbFeatures];
+        for (int i = 0; i < nbActive; i++) {
+            String line = readLine(input);
+            int separator = line.indexOf('=');
+            int feature = Integer.parseInt(line.substring(0, separator));
+            weights[feature] = Double.parseDouble(line.substring(separator + 1));
+        }
+
+        return new AstroViterbiLabeler(labelCodes, patterns, observations, unigramOffsets, bigramOffsets, weights);
+    }
+
+    /**
+     * Kind of an observation or pattern, from its first char: u for unigram, b for bigram and
+     * * for both.
+     */
+    private static int kind(String pattern) {
+        switch (pattern.length() == 0 ? ' ' : Character.toLowerCase(pattern.charAt(0))) {
+            case 'u':
+                return UNIGRAM;
+            case 'b':
+                return BIGRAM;
+            case '*':
+                return UNIGRAM | BIGRAM;
+            default:
+                throw new IllegalArgumentException("Unknown pattern type: " + pattern);
+        }
+    }
+
+    // the observations are keyed with a lowercase kind char, as the compiled patterns
+    private static String lowerCaseKind(String key) {
+        if ((key.length() == 0) || Character.isLowerCase(key.charAt(0)))
+            return key;
+        return Character.toLowerCase(key.charAt(0)) + key.substring(1);
+    }
+
+    /**
+     * Compile a pattern of the template: %x[offset,column] is replaced by the value of the
+     * column of the token at the offset, %X[offset,column] by the lowercased value, and
+     * everything else is literal.
+     */
+    static FeaturePattern compile(String pattern) {
+        List<String> literals = new ArrayList<>();
+        List<int[]> references = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        literal.append(Character.toLowerCase(pattern.charAt(0)));
+        int i = 1;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if ((c != '%') || (i + 1 >= pattern.length())) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            char command = pattern.charAt(i + 1);
+            if ((command != 'x') && (command != 'X')) {
+                throw new IllegalArgumentException("Unsupported pattern command %" + command + " in " + pattern);
+            }
+            int end = pattern.indexOf(']', i);
+            if ((end == -1) || (pattern.charAt(i + 2) != '['))
+                throw new IllegalArgumentException("Invalid pattern: " + pattern);
+            String[] arguments = pattern.substring(i + 3, end).split(",");
+            if ((arguments.length != 2) || arguments[0].trim().startsWith("@"))
+                throw new IllegalArgumentException("Unsupported pattern reference in " + pattern);
+            if (literal.length() > 0) {
+                literals.add(literal.toString());
+                references.add(null);
+                literal.setLength(0);
+            }
+            literals.add(null);
+            references.add(new int[] {Integer.parseInt(arguments[0].trim()), Integer.parseInt(arguments[1].trim()),
+                (command == 'X') ? 1 : 0});
+            i = end + 1;
+        }
+        if (literal.length() > 0) {
+            literals.add(literal.toString());
+            references.add(null);
+        }
+
+        int nbItems = literals.size();
+        int[] offsets = new int[nbItems];
+        int[] columns = new int[nbItems];
+        boolean[] lowerCase = new boolean[nbItems];
+        for (int item = 0; item < nbItems; item++) {
+            int[] reference = references.get(item);
+            if (reference != null) {
+                offsets[item] = reference[0];
+                columns[item] = reference[1];
+                lowerCase[item] = reference[2] == 1;
+            }
+        }
+        return new FeaturePattern(kind(pattern), literals.toArray(new String[nbItems]), offsets, columns, lowerCase);
+    }
+
+    @Override
+    public int[] label(AstroFeatureMatrix matrix) {
+        int[] labels = new int[matrix.size()];
+        Buffers buffer = buffers.get();
+        // every sequence separated by a line break is decoded independently, as by Wapiti
+        int start = 0;
+        while (start < matrix.size()) {
+            int end = start + 1;
+            while ((end < matrix.size()) && !matrix.startsSequence(end))
+                end++;
+            decode(matrix, start, end, labels, buffer);
+            start = end;
+        }
+        return labels;
+    }
+
+    /**
+     * Viterbi decoding of the rows from start (inclusive) to end (exclusive).
+     */
+    private void decode(AstroFeatureMatrix matrix, int start, int end, int[] labels, Buffers buffer) {
+        int length = end - start;
+        if (buffer.backPointers.length < length * nbLabels)
+            buffer.backPointers = new int[Math.max(length * nbLabels, 2 * buffer.backPointers.length)];
+        int[] back = buffer.backPointers;
+        double[] current = buffer.current;
+        double[] previous = buffer.previous;
+        double[] unigram = buffer.unigramScores;
+        double[] bigram = buffer.bigramScores;
+
+        for (int t = 0; t < length; t++) {
+            scores(matrix, start, end, t, buffer);
+            if (t == 0) {
+                // no bigram features for the first token
+                System.arraycopy(unigram, 0, current, 0, nbLabels);
+                continue;
+            }
+            System.arraycopy(current, 0, previous, 0, nbLabels);
+            for (int y = 0; y < nbLabels; y++) {
+                double best = Double.NEGATIVE_INFINITY;
+                int bestPrevious = 0;
+                for (int yp = 0; yp < nbLabels; yp++) {
+                    double value = previous[yp] + (unigram[y] + bigram[yp * nbLabels + y]);
+                    if (value > best) {
+                        best = value;
+                        bestPrevious = yp;
+                    }
+                }
+                back[t * nbLabels + y] = bestPrevious;
+                current[y] = best;
+            }
+        }
+
+        int best = 0;
+        for (int y = 1; y < nbLabels; y++) {
+            if (current[y] > current[best])
+                best = y;
+        }
+        for (int t = length - 1; t >= 0; t--) {
+            labels[start + t] = labelCodes[best];
+            if (t > 0)
+                best = back[t * nbLabels + best];
+        }
+    }
+
+    /**
+     * Sum of the weights of the unigram and bigram features of the token at the position t of
+     * the sequence of the rows from start to end.
+     */
+    private void scores(AstroFeatureMatrix matrix, int start, int end, int t, Buffers buffer) {
+        int length = end - start;
+        double[] unigram = buffer.unigramScores;
+        double[] bigram = buffer.bigramScores;
+        Arrays.fill(unigram, 0.0);
+        Arrays.fill(bigram, 0.0);
+        StringBuilder observation = buffer.observation;
+        for (FeaturePattern pattern : patterns) {
+            observation.setLength(0);
+            for (int item = 0; item < pattern.literals.length; item++) {
+                if (pattern.literals[item] != null) {
+                    observation.append(pattern.literals[item]);
+                    continue;
+                }
+                int position = t + pattern.offsets[item];
+                String value;
+                if (position < 0)
+                    value = BEFORE[Math.min(-position - 1, 4)];
+                else if (position >= length)
+                    value = AFTER[Math.min(position - length, 4)];
+                else
+                    value = matrix.getColumn(start + position, pattern.columns[item]);
+                if (pattern.lowerCase[item]) {
+                    for (int i = 0; i < value.length(); i++) {
+                        char c = value.charAt(i);
+                        observation.append(((c >= 'A') && (c <= 'Z')) ? (char) (c + ('a' - 'A')) : c);
+                    }
+                } else {
+                    observation.append(value);
+                }
+            }
+
+            int index = observations.indexOf(observation);
+            if (index == -1)
+                continue;
+            if ((pattern.kind & UNIGRAM) != 0) {
+                int offset = unigramOffsets[index];
+                for (int y = 0; y < nbLabels; y++)
+                    unigram[y] += weights[offset + y];
+            }
+            if (((pattern.kind & BIGRAM) != 0) && (t > 0)) {
+                int offset = bigramOffsets[index];
+                for (int d = 0; d < nbLabels * nbLabels; d++)
+                    bigram[d] += weights[offset + d];
+            }
+        }
+    }
+
+    /**
+     * Line of ASCII chars, without the end of line.
+     */
+    private static String readLine(InputStream input) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = input.read()) != '\n') {
+            if (c == -1) {
+                if (line.length() == 0)
+                    throw new EOFException("Unexpected end of the model file");
+                break;
+            }
+            if (c != '\r')
+                line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    /**
+     * String written as <length in bytes>:<UTF-8 bytes>,
+     */
+    private static String readString(InputStream input) throws IOException {
+        int length = 0;
+        int c;
+        while ((c = input.read()) != ':') {
+            if ((c < '0') || (c > '9'))
+                throw new IllegalArgumentException("Invalid string length in the model file");
+            length = 10 * length + (c - '0');
+        }
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = input.read(bytes, read, length - read);
+            if (n == -1)
+                throw new EOFException("Unexpected end of the model file");
+            read += n;
+        }
+        if (input.read() != ',')
+            throw new IllegalArgumentException("Invalid string in the model file");
+        c = input.read();
+        if (c == '\r')
+            input.read();
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Strings of a quark (#qrk#<count> then the strings by identifier).
+     */
+    private static List<String> readQuarks(InputStream input) throws IOException {
+        String header = readLine(input);
+        if (!header.startsWith("#qrk#"))
+            throw new IllegalArgumentException("Invalid quark header in the model file: " + header);
+        int count = Integer.parseInt(header.substring("#qrk#".length()));
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            strings.add(readString(input));
+        return strings;
+    }
+}
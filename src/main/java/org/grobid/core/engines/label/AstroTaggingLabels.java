@@ -2,6 +2,8 @@ package org.grobid.core.engines.label;
 
 import org.grobid.core.GrobidModels;
 
+import static org.grobid.core.engines.tagging.GenericTaggerUtils.START_ENTITY_LABEL_PREFIX;
+
 public class AstroTaggingLabels extends TaggingLabels {
 	
 	private AstroTaggingLabels() {
@@ -19,4 +21,40 @@ public class AstroTaggingLabels extends TaggingLabels {
     	register(OTHER);
     }
 
+    // codes of the labels of the tokens, as given by AstroParser.labelTokens()
+    public final static int LABEL_NONE = 0; // token without feature vector (space, line break)
+    public final static int LABEL_OTHER = 1;
+    public final static int LABEL_OBJECT_BEGIN = 2;
+    public final static int LABEL_OBJECT_INSIDE = 3;
+
+    /**
+     * Code of a label as written by the sequence labeler, e.g. I-&lt;object&gt; for the first token
+     * of an object.
+     */
+    public static int labelCode(String label) {
+        if (label == null)
+            return LABEL_NONE;
+        boolean begin = label.startsWith(START_ENTITY_LABEL_PREFIX);
+        String plainLabel = begin ? label.substring(START_ENTITY_LABEL_PREFIX.length()) : label;
+        if (plainLabel.equals(OBJECT_LABEL))
+            return begin ? LABEL_OBJECT_BEGIN : LABEL_OBJECT_INSIDE;
+        return LABEL_OTHER;
+    }
+
+    /**
+     * Label of a code as written by the sequence labeler, null for LABEL_NONE.
+     */
+    public static String labelString(int code) {
+        switch (code) {
+            case LABEL_OTHER:
+                return OTHER_LABEL;
+            case LABEL_OBJECT_BEGIN:
+                return START_ENTITY_LABEL_PREFIX + OBJECT_LABEL;
+            case LABEL_OBJECT_INSIDE:
+                return OBJECT_LABEL;
+            default:
+                return null;
+        }
+    }
+
 }
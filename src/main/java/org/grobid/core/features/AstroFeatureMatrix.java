@@ -0,0 +1,156 @@
+package org.grobid.core.features;
+
+import org.grobid.core.engines.label.AstroTaggingLabels;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Feature matrix of a sequence of tokens, one row of FeaturesVectorAstro per token having
+ * features, kept in memory so that a labeler can read the columns without serializing the
+ * matrix to text and parsing it back.
+ *
+ * Tokens without row (spaces, line breaks) are recorded by their index only, so that the
+ * labels of the rows can be aligned back to the tokens of the sequence.
+ */
+public class AstroFeatureMatrix {
+
+    private final List<FeaturesVectorAstro> rows = new ArrayList<>();
+
+    // index in the token sequence of the token of every row
+    private int[] tokenIndexes = new int[64];
+
+    // number of "@newline" markers before every row, and after the last row
+    private int[] breaks = new int[65];
+
+    private int nbTokens = 0;
+
+    public void add(FeaturesVectorAstro vector, int tokenIndex) {
+        int row = rows.size();
+        if (row == tokenIndexes.length) {
+            tokenIndexes = Arrays.copyOf(tokenIndexes, 2 * row);
+            breaks = Arrays.copyOf(breaks, 2 * row + 1);
+        }
+        rows.add(vector);
+        tokenIndexes[row] = tokenIndex;
+        nbTokens = Math.max(nbTokens, tokenIndex + 1);
+    }
+
+    /**
+     * Record a "@newline" marker token, written as an empty line in the serialized matrix.
+     */
+    public void addBreak(int tokenIndex) {
+        breaks[rows.size()]++;
+        nbTokens = Math.max(nbTokens, tokenIndex + 1);
+    }
+
+    /**
+     * Record a token without features.
+     */
+    public void skip(int tokenIndex) {
+        nbTokens = Math.max(nbTokens, tokenIndex + 1);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Number of tokens of the sequence, with or without row.
+     */
+    public int getNbTokens() {
+        return nbTokens;
+    }
+
+    public FeaturesVectorAstro getVector(int row) {
+        return rows.get(row);
+    }
+
+    public int getTokenIndex(int row) {
+        return tokenIndexes[row];
+    }
+
+    /**
+     * True if the row is the first one of the matrix or follows a line break, the CRF library
+     * labeling the rows between two line breaks as a separate sequence.
+     */
+    public boolean startsSequence(int row) {
+        return (row == 0) || (breaks[row] > 0);
+    }
+
+    /**
+     * Matrix of the rows from fromRow (inclusive) to toRow (exclusive), with the token indexes
+     * of the rows and the line breaks between these rows.
+     */
+    public AstroFeatureMatrix subMatrix(int fromRow, int toRow) {
+        AstroFeatureMatrix matrix = new AstroFeatureMatrix();
+        for (int row = fromRow; row < toRow; row++) {
+            matrix.add(rows.get(row), tokenIndexes[row]);
+            if (row > fromRow)
+                matrix.breaks[row - fromRow] = breaks[row];
+        }
+        return matrix;
+    }
+
+    public String getColumn(int row, int column) {
+        return rows.get(row).getColumn(column);
+    }
+
+    /**
+     * Append the matrix in the text format of the CRF library, as AstroParser.addFeatures().
+     */
+    public void serialize(StringBuilder result) {
+        for (int row = 0; row < rows.size(); row++) {
+            for (int i = 0; i < breaks[row]; i++)
+                result.append('\n');
+            rows.get(row).printVector(result);
+            result.append('\n');
+        }
+        for (int i = 0; i < breaks[rows.size()]; i++)
+            result.append('\n');
+    }
+
+    /**
+     * Matrix of a feature text in the format of the CRF library, such as a training or
+     * evaluation file, the token columns being computed again from the token and the lexical
+     * feature columns.
+     */
+    public static AstroFeatureMatrix parse(String features) {
+        AstroFeatureMatrix matrix = new AstroFeatureMatrix();
+        String[] lines = features.split("\n", -1);
+        // no break for the end of the last line
+        int nbLines = ((lines.length > 0) && lines[lines.length - 1].isEmpty()) ? lines.length - 1 : lines.length;
+        for (int i = 0; i < nbLines; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty()) {
+                matrix.addBreak(i);
+                continue;
+            }
+            String[] columns = line.split("[\t ]+");
+            if (columns.length != FeaturesVectorAstro.NB_COLUMNS) {
+                throw new IllegalArgumentException("Expected " + FeaturesVectorAstro.NB_COLUMNS + 
+                    " columns, got " + columns.length + ": " + line);
+            }
+            FeaturesVectorAstro vector = FeaturesVectorAstro.addFeaturesAstro(columns[0], 
+                columns[FeaturesVectorAstro.NB_COLUMNS - 1], columns[16].equals("1"), columns[17].equals("1"));
+            matrix.add(vector, i);
+        }
+        return matrix;
+    }
+
+    /**
+     * Labels of the tokens of the sequence from the labels of the rows, LABEL_NONE for the
+     * tokens without row.
+     */
+    public int[] alignToTokens(int[] rowLabels) {
+        if (rowLabels.length != rows.size()) {
+            throw new IllegalArgumentException("Expected " + rows.size() + " labels, got " + rowLabels.length);
+        }
+        int[] tokenLabels = new int[nbTokens];
+        Arrays.fill(tokenLabels, AstroTaggingLabels.LABEL_NONE);
+        for (int row = 0; row < rows.size(); row++)
+            tokenLabels[tokenIndexes[row]] = rowLabels[row];
+        return tokenLabels;
+    }
+}
@@ -1,8 +1,17 @@
 package org.grobid.core.features;
 
+import org.grobid.core.utilities.AstroMetrics;
+import org.grobid.core.utilities.OffsetPosition;
 import org.grobid.core.utilities.TextUtilities;
-import org.grobid.core.lexicon.AstroLexicon;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.CacheLoader;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.StringTokenizer;
 import java.util.regex.Matcher;
 
@@ -13,8 +22,6 @@ import java.util.regex.Matcher;
  */
 public class FeaturesVectorAstro {
 
-	private AstroLexicon lexicon = AstroLexicon.getInstance();
-
     public String string = null;     // lexical feature
     public String label = null;     // label (the goal of the CRF labelling!) if known
 
@@ -42,94 +49,272 @@ public class FeaturesVectorAstro {
 	// converted character shape
 	public String wordShapeTrimmed = null;
 
+    // features depending only on the token, shared by all the vectors of the same token
+    private TokenFeatures tokenFeatures = null;
+
+    /**
+     * Features of a token which do not depend on its context, with the corresponding columns
+     * of the vector: the columns before the lexical features (token, lowercase, prefixes,
+     * suffixes, capitalisation, digit, single char and punctuation) and the columns after
+     * them (shadow number and word shapes). Only the two strings of the columns are kept,
+     * a column is read from them by its position.
+     */
+    private static final class TokenFeatures {
+        final String capitalisation;
+        final String digit;
+        final boolean singleChar;
+        final String punctType;
+        final boolean commonName;
+        final String shadowNumber;
+        final String wordShape;
+        final String wordShapeTrimmed;
+
+        final String head;
+        final String tail;
+
+        TokenFeatures(FeaturesVectorAstro vector) {
+            capitalisation = vector.capitalisation;
+            digit = vector.digit;
+            singleChar = vector.singleChar;
+            punctType = vector.punctType;
+            commonName = vector.commonName;
+            shadowNumber = vector.shadowNumber;
+            wordShape = vector.wordShape;
+            wordShapeTrimmed = vector.wordShapeTrimmed;
+
+            StringBuilder builder = new StringBuilder();
+            vector.printHead(builder);
+            head = builder.toString();
+            builder.setLength(0);
+            vector.printTail(builder);
+            tail = builder.toString();
+        }
+
+        /**
+         * Column of the head (column < NB_HEAD_COLUMNS) or of the tail, the tail starting
+         * with a space.
+         */
+        String getColumn(int column) {
+            String columns = (column < NB_HEAD_COLUMNS) ? head : tail;
+            int index = (column < NB_HEAD_COLUMNS) ? column : column - NB_HEAD_COLUMNS - 1;
+            int start = 0;
+            for (int i = 0; i < index; i++)
+                start = columns.indexOf(' ', start) + 1;
+            int end = columns.indexOf(' ', start);
+            return columns.substring(start, (end == -1) ? columns.length() : end);
+        }
+    }
+
+    // names of the metrics of the token cache
+    public static final String METRIC_CACHE_HITS = "features.cache.hits";
+    public static final String METRIC_CACHE_MISSES = "features.cache.misses";
+    public static final String METRIC_CACHE_HIT_RATE = "features.cache.hitRate";
+    public static final String METRIC_CACHE_SIZE = "features.cache.size";
+
+    // default number of distinct tokens kept in the cache, least recently used tokens are
+    // evicted first
+    public static final int DEFAULT_TOKEN_CACHE_SIZE = 100000;
+
+    private static volatile LoadingCache<String, TokenFeatures> tokenCache = buildTokenCache(DEFAULT_TOKEN_CACHE_SIZE);
+
+    static {
+        AstroMetrics metrics = AstroMetrics.getInstance();
+        metrics.gauge(METRIC_CACHE_HITS, () -> tokenCache.stats().hitCount());
+        metrics.gauge(METRIC_CACHE_MISSES, () -> tokenCache.stats().missCount());
+        metrics.gauge(METRIC_CACHE_HIT_RATE, () -> {
+            CacheStats stats = tokenCache.stats();
+            return (stats.requestCount() == 0) ? null : stats.hitRate();
+        });
+        metrics.gauge(METRIC_CACHE_SIZE, () -> tokenCache.size());
+    }
+
+    private static LoadingCache<String, TokenFeatures> buildTokenCache(int maxSize) {
+        return CacheBuilder.newBuilder()
+            .maximumSize(Math.max(maxSize, 0))
+            .recordStats()
+            .build(new CacheLoader<String, TokenFeatures>() {
+                @Override
+                public TokenFeatures load(String word) {
+                    return computeTokenFeatures(word);
+                }
+            });
+    }
+
+    /**
+     * Replace the cache of the token features by an empty cache of at most maxSize tokens,
+     * 0 for no cache.
+     */
+    public static void setTokenCacheSize(int maxSize) {
+        tokenCache = buildTokenCache(maxSize);
+    }
+
+    /**
+     * Statistics of the cache of the token features since it was created.
+     */
+    public static CacheStats tokenCacheStats() {
+        return tokenCache.stats();
+    }
+
+    // number of columns of a vector: 16 token columns, the 2 lexical features, 3 word shape
+    // columns and the label
+    public static final int NB_COLUMNS = 22;
+    private static final int NB_HEAD_COLUMNS = 16;
+
     public FeaturesVectorAstro() {
     }
 
+    /**
+     * Column of the vector as written by printVector(), without building the vector string.
+     */
+    public String getColumn(int column) {
+        if (column == NB_COLUMNS - 1)
+            return (label != null) ? label : "0";
+        if (column == NB_HEAD_COLUMNS)
+            return astroName ? "1" : "0";
+        if (column == NB_HEAD_COLUMNS + 1)
+            return isAstroToken ? "1" : "0";
+        TokenFeatures features = tokenFeatures;
+        if (features == null) {
+            // vector not created by addFeaturesAstro()
+            features = new TokenFeatures(this);
+        }
+        return features.getColumn(column);
+    }
+
     public String printVector() {
         if (string == null) return null;
         if (string.length() == 0) return null;
-        StringBuffer res = new StringBuffer();
+        StringBuilder res = new StringBuilder();
+        printVector(res);
+        return res.toString();
+    }
+
+    /**
+     * Append the feature vector to the builder, without intermediate strings, so that the
+     * vectors of a whole sequence can be written in the same builder. The output is the same
+     * as printVector(). Nothing is appended if there is no token.
+     */
+    public void printVector(StringBuilder res) {
+        if (string == null) return;
+        if (string.length() == 0) return;
+
+        // token, lowercase, prefixes, suffixes, capitalisation, digit, character, punctuation
+        if (tokenFeatures != null)
+            res.append(tokenFeatures.head);
+        else
+            printHead(res);
+
+		// lexical information (1), token is a token in the astro vocabulary
+        res.append(astroName ? " 1" : " 0");
+		
+		// lexical feature: belongs to a known full astro name (1)
+        res.append(isAstroToken ? " 1" : " 0");
+
+        // shadow number, word shape, word shape trimmed
+        if (tokenFeatures != null)
+            res.append(tokenFeatures.tail);
+        else
+            printTail(res);
+		
+        // label - for training data (1)
+        if (label != null)
+            res.append(' ').append(label);
+        else
+            res.append(" 0");
+    }
 
+    private void printHead(StringBuilder res) {
         // token string (1)
         res.append(string);
 
         // lowercase string
-        res.append(" " + string.toLowerCase());
+        res.append(' ');
+        appendLowerCase(res, string);
 
         // prefix (5)
-        res.append(" " + TextUtilities.prefix(string, 1));
-        res.append(" " + TextUtilities.prefix(string, 2));
-        res.append(" " + TextUtilities.prefix(string, 3));
-        res.append(" " + TextUtilities.prefix(string, 4));
-        res.append(" " + TextUtilities.prefix(string, 5));
+        for (int i = 1; i <= 5; i++) {
+            res.append(' ');
+            res.append(string, 0, Math.min(i, string.length()));
+        }
 
         // suffix (5)
-        res.append(" " + TextUtilities.suffix(string, 1));
-        res.append(" " + TextUtilities.suffix(string, 2));
-        res.append(" " + TextUtilities.suffix(string, 3));
-        res.append(" " + TextUtilities.suffix(string, 4));
-        res.append(" " + TextUtilities.suffix(string, 5));
+        for (int i = 1; i <= 5; i++) {
+            res.append(' ');
+            res.append(string, string.length() - Math.min(i, string.length()), string.length());
+        }
 
         // capitalisation (1)
+        res.append(' ');
         if (digit.equals("ALLDIGIT"))
-            res.append(" NOCAPS");
+            res.append("NOCAPS");
         else
-            res.append(" " + capitalisation);
+            res.append(capitalisation);
 
         // digit information (1)
-        res.append(" " + digit);
+        res.append(' ').append(digit);
 
         // character information (1)
-        if (singleChar)
-            res.append(" 1");
-        else
-            res.append(" 0"); 
+        res.append(singleChar ? " 1" : " 0");
 
         // punctuation information (1)
-        res.append(" " + punctType); // in case the token is a punctuation (NO otherwise)
-
-		// lexical information (1), token is a token in the astro vocabulary
-        if (astroName)
-            res.append(" 1");
-        else
-            res.append(" 0");
-		
-		// lexical feature: belongs to a known full astro name (1)
-		if (isAstroToken)
-			res.append(" 1");
-        else
-            res.append(" 0");
+        res.append(' ').append(punctType); // in case the token is a punctuation (NO otherwise)
+    }
 
+    private void printTail(StringBuilder res) {
         // token length (1)
-        //res.append(" " + string.length()); // /
+        //res.append(' ').append(string.length()); // /
 
 		// shadow number (1)
-		res.append(" " + shadowNumber); // /
+		res.append(' ').append(shadowNumber); // /
 		
 		// word shape (1)
-		res.append(" " + wordShape);
+		res.append(' ').append(wordShape);
 		
 		// word shape trimmed (1)
-		res.append(" " + wordShapeTrimmed);
-		
-        // label - for training data (1)
-        if (label != null)
-            res.append(" " + label + "");
-        else
-            res.append(" 0");
+		res.append(' ').append(wordShapeTrimmed);
+    }
 
-        return res.toString();
+    // same as String.toLowerCase(Locale.ROOT), without allocation for ASCII strings: the
+    // lowercase feature must not depend on the default locale of the JVM (e.g. the Turkish
+    // dotless i), so that training and labeling give the same features
+    private static void appendLowerCase(StringBuilder res, String string) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) >= 128) {
+                res.append(string.toLowerCase(Locale.ROOT));
+                return;
+            }
+        }
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if ((c >= 'A') && (c <= 'Z'))
+                c += 'a' - 'A';
+            res.append(c);
+        }
     }
 
     /**
-     * Add the features for the NER model.
+     * Indexes of the tokens of a sequence which are part of a lexicon name, from the token
+     * positions of the names, for the isAstroToken feature of the parser and of the trainer.
+     */
+    public static BitSet astroNameCoverage(List<OffsetPosition> astroTokenPositions) {
+        BitSet covered = new BitSet();
+        if (astroTokenPositions == null)
+            return covered;
+        for (OffsetPosition position : astroTokenPositions) {
+            if ((position.start >= 0) && (position.end >= position.start))
+                covered.set(position.start, position.end + 1);
+        }
+        return covered;
+    }
+
+    /**
+     * Add the features for the NER model. The features depending only on the token are
+     * computed once per token and cached.
      */
     static public FeaturesVectorAstro addFeaturesAstro(String line,
                                             String label,
                                             boolean isAstroToken,
                                             boolean isAstroPattern) {
-        FeatureFactory featureFactory = FeatureFactory.getInstance();
-
         FeaturesVectorAstro featuresVector = new FeaturesVectorAstro();
         StringTokenizer st = new StringTokenizer(line, "\t ");
         if (st.hasMoreTokens()) {
@@ -141,67 +326,90 @@ public class FeaturesVectorAstro {
             featuresVector.string = word;
             featuresVector.label = label;
 
-            if (word.length() == 1) {
-                featuresVector.singleChar = true;
-            }
+            TokenFeatures tokenFeatures = tokenCache.getUnchecked(word);
+            featuresVector.tokenFeatures = tokenFeatures;
+            featuresVector.capitalisation = tokenFeatures.capitalisation;
+            featuresVector.digit = tokenFeatures.digit;
+            featuresVector.singleChar = tokenFeatures.singleChar;
+            featuresVector.punctType = tokenFeatures.punctType;
+            featuresVector.commonName = tokenFeatures.commonName;
+            featuresVector.shadowNumber = tokenFeatures.shadowNumber;
+            featuresVector.wordShape = tokenFeatures.wordShape;
+            featuresVector.wordShapeTrimmed = tokenFeatures.wordShapeTrimmed;
 
-            if (featureFactory.test_all_capital(word))
-                featuresVector.capitalisation = "ALLCAPS";
-            else if (featureFactory.test_first_capital(word))
-                featuresVector.capitalisation = "INITCAP";
-            else
-                featuresVector.capitalisation = "NOCAPS";
-
-            if (featureFactory.test_number(word))
-                featuresVector.digit = "ALLDIGIT";
-            else if (featureFactory.test_digit(word))
-                featuresVector.digit = "CONTAINDIGIT";
-            else
-                featuresVector.digit = "NODIGIT";
-
-            Matcher m0 = featureFactory.isPunct.matcher(word);
-            if (m0.find()) {
-                featuresVector.punctType = "PUNCT";
-            }
-            if ((word.equals("(")) | (word.equals("["))) {
-                featuresVector.punctType = "OPENBRACKET";
-            } else if ((word.equals(")")) | (word.equals("]"))) {
-                featuresVector.punctType = "ENDBRACKET";
-            } else if (word.equals(".")) {
-                featuresVector.punctType = "DOT";
-            } else if (word.equals(",")) {
-                featuresVector.punctType = "COMMA";
-            } else if (word.equals("-")) {
-                featuresVector.punctType = "HYPHEN";
-            } else if (word.equals("\"") | word.equals("\'") | word.equals("`")) {
-                featuresVector.punctType = "QUOTE";
-            }
+            featuresVector.astroName = isAstroToken;
 
-            if (featuresVector.capitalisation == null)
-                featuresVector.capitalisation = "NOCAPS";
+			featuresVector.isAstroToken = isAstroPattern; 
+        }
 
-            if (featuresVector.digit == null)
-                featuresVector.digit = "NODIGIT";
+        return featuresVector;
+    }
 
-            if (featuresVector.punctType == null)
-                featuresVector.punctType = "NOPUNCT";
+    /**
+     * Compute the features depending only on the token.
+     */
+    private static TokenFeatures computeTokenFeatures(String word) {
+        FeatureFactory featureFactory = FeatureFactory.getInstance();
 
-			if (featureFactory.test_common(word)) {
-                featuresVector.commonName = true;
-            }
+        FeaturesVectorAstro featuresVector = new FeaturesVectorAstro();
+        featuresVector.string = word;
 
-            featuresVector.astroName = isAstroToken;
+        if (word.length() == 1) {
+            featuresVector.singleChar = true;
+        }
 
-			featuresVector.isAstroToken = isAstroPattern; 
+        if (featureFactory.test_all_capital(word))
+            featuresVector.capitalisation = "ALLCAPS";
+        else if (featureFactory.test_first_capital(word))
+            featuresVector.capitalisation = "INITCAP";
+        else
+            featuresVector.capitalisation = "NOCAPS";
+
+        if (featureFactory.test_number(word))
+            featuresVector.digit = "ALLDIGIT";
+        else if (featureFactory.test_digit(word))
+            featuresVector.digit = "CONTAINDIGIT";
+        else
+            featuresVector.digit = "NODIGIT";
 
-			featuresVector.shadowNumber = TextUtilities.shadowNumbers(word);
-			
-			featuresVector.wordShape = TextUtilities.wordShape(word);
-			
-			featuresVector.wordShapeTrimmed = TextUtilities.wordShapeTrimmed(word);
+        Matcher m0 = featureFactory.isPunct.matcher(word);
+        if (m0.find()) {
+            featuresVector.punctType = "PUNCT";
+        }
+        if ((word.equals("(")) | (word.equals("["))) {
+            featuresVector.punctType = "OPENBRACKET";
+        } else if ((word.equals(")")) | (word.equals("]"))) {
+            featuresVector.punctType = "ENDBRACKET";
+        } else if (word.equals(".")) {
+            featuresVector.punctType = "DOT";
+        } else if (word.equals(",")) {
+            featuresVector.punctType = "COMMA";
+        } else if (word.equals("-")) {
+            featuresVector.punctType = "HYPHEN";
+        } else if (word.equals("\"") | word.equals("\'") | word.equals("`")) {
+            featuresVector.punctType = "QUOTE";
         }
 
-        return featuresVector;
+        if (featuresVector.capitalisation == null)
+            featuresVector.capitalisation = "NOCAPS";
+
+        if (featuresVector.digit == null)
+            featuresVector.digit = "NODIGIT";
+
+        if (featuresVector.punctType == null)
+            featuresVector.punctType = "NOPUNCT";
+
+		if (featureFactory.test_common(word)) {
+            featuresVector.commonName = true;
+        }
+
+		featuresVector.shadowNumber = TextUtilities.shadowNumbers(word);
+		
+		featuresVector.wordShape = TextUtilities.wordShape(word);
+		
+		featuresVector.wordShapeTrimmed = TextUtilities.wordShapeTrimmed(word);
+
+        return new TokenFeatures(featuresVector);
     }
 
 }
@@ -0,0 +1,183 @@
+package org.grobid.core.layout;
+
+/**
+ * Lightweight view of a part of a LayoutToken, as produced by the astro retokenization.
+ *
+ * Only the text and the offset are specific to the sub-token, the layout attributes (font,
+ * style, coordinates, page, etc.) are read from the parent token, so that retokenizing a
+ * document does not copy them for every sub-token. The layout attributes of a sub-token
+ * are therefore read-only: their setters throw an UnsupportedOperationException, the parent
+ * token has to be changed instead.
+ */
+public class AstroSubLayoutToken extends LayoutToken {
+
+    private final LayoutToken parent;
+
+    public AstroSubLayoutToken(LayoutToken parent, String text, int offset) {
+        super();
+        // the parent of a sub-token is always an original token
+        if (parent instanceof AstroSubLayoutToken)
+            parent = ((AstroSubLayoutToken) parent).getParent();
+        this.parent = parent;
+        setText(text);
+        setOffset(offset);
+    }
+
+    public LayoutToken getParent() {
+        return parent;
+    }
+
+    @Override
+    public String getFont() {
+        return parent.getFont();
+    }
+
+    @Override
+    public String getColorFont() {
+        return parent.getColorFont();
+    }
+
+    @Override
+    public double getFontSize() {
+        return parent.getFontSize();
+    }
+
+    @Override
+    public boolean getBold() {
+        return parent.getBold();
+    }
+
+    @Override
+    public boolean getItalic() {
+        return parent.getItalic();
+    }
+
+    @Override
+    public boolean getRotation() {
+        return parent.getRotation();
+    }
+
+    @Override
+    public double getX() {
+        return parent.getX();
+    }
+
+    @Override
+    public double getY() {
+        return parent.getY();
+    }
+
+    @Override
+    public double getWidth() {
+        return parent.getWidth();
+    }
+
+    @Override
+    public double getHeight() {
+        return parent.getHeight();
+    }
+
+    @Override
+    public int getPage() {
+        return parent.getPage();
+    }
+
+    @Override
+    public boolean isNewLineAfter() {
+        return parent.isNewLineAfter();
+    }
+
+    @Override
+    public int getBlockPtr() {
+        return parent.getBlockPtr();
+    }
+
+    @Override
+    public boolean isSubscript() {
+        return parent.isSubscript();
+    }
+
+    @Override
+    public boolean isSuperscript() {
+        return parent.isSuperscript();
+    }
+
+    @Override
+    public void setFont(String font) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setColorFont(String colorFont) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setFontSize(double value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setBold(boolean value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setItalic(boolean value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setRotation(boolean value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setX(double value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setY(double value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setWidth(double value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setHeight(double value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPage(int value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setNewLineAfter(boolean value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setBlockPtr(int value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSubscript(boolean value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSuperscript(boolean value) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("The layout attributes of an astro sub-token are read from its parent token");
+    }
+}
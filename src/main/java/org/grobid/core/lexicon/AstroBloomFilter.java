@@ -0,0 +1,125 @@
+package org.grobid.core.lexicon;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Collection;
+
+/**
+ * Bloom filter over the normalized tokens which can start a lexicon term, to discard without
+ * normalization and look-up the tokens which cannot start an astronomical name.
+ *
+ * The bit positions are derived from the 64-bit hash of the string table by double hashing.
+ * A token made of printable ASCII characters is hashed directly on its lowercased chars,
+ * which gives the hash of its normalized form without allocation. Other tokens are not
+ * filtered.
+ */
+public class AstroBloomFilter {
+
+    // bits per element and number of hash functions, for a false positive rate under 1%
+    private static final int BITS_PER_ELEMENT = 10;
+    private static final int NB_HASHES = 7;
+
+    private final LongBuffer bits;
+    private final long bitMask;
+    private final int nbHashes;
+    private final int nbElements;
+
+    private AstroBloomFilter(LongBuffer bits, int nbHashes, int nbElements) {
+        this.bits = bits;
+        this.bitMask = (64L * bits.limit()) - 1;
+        this.nbHashes = nbHashes;
+        this.nbElements = nbElements;
+    }
+
+    public static AstroBloomFilter build(Collection<String> elements) {
+        // number of bits as a power of 2, at least one long
+        long nbBits = Long.highestOneBit(Math.max((long) elements.size() * BITS_PER_ELEMENT, 64L) * 2 - 1);
+        AstroBloomFilter filter = new AstroBloomFilter(LongBuffer.allocate((int) (nbBits / 64)), NB_HASHES,
+            elements.size());
+        for (String element : elements) {
+            filter.add(AstroStringTable.hash(element));
+        }
+        return filter;
+    }
+
+    private void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = ((int) (hash >>> 32)) | 1;
+        for (int i = 0; i < nbHashes; i++) {
+            long bit = (h1 + (long) i * h2) & bitMask;
+            int word = (int) (bit >>> 6);
+            bits.put(word, bits.get(word) | (1L << bit));
+        }
+    }
+
+    /**
+     * False if the string of the hash, as given by AstroStringTable.hash, is certainly not in
+     * the filter.
+     */
+    boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = ((int) (hash >>> 32)) | 1;
+        for (int i = 0; i < nbHashes; i++) {
+            long bit = (h1 + (long) i * h2) & bitMask;
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * False if the token, once normalized and lowercased, is certainly not in the filter.
+     */
+    public boolean mightContainToken(String token) {
+        long hash = AstroStringTable.HASH_SEED;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if ((c < '!') || (c > '~')) {
+                // the normalization may change the token
+                return true;
+            }
+            if ((c >= 'A') && (c <= 'Z'))
+                c += 'a' - 'A';
+            hash = AstroStringTable.hashStep(hash, c);
+        }
+        return mightContain(AstroStringTable.hashFinish(hash));
+    }
+
+    public int getNbElements() {
+        return nbElements;
+    }
+
+    /**
+     * Expected false positive rate for the number of elements of the filter.
+     */
+    public double getFalsePositiveRate() {
+        double nbBits = bitMask + 1;
+        return Math.pow(1 - Math.exp(-nbHashes * nbElements / nbBits), nbHashes);
+    }
+
+    void write(DataOutputStream output) throws IOException {
+        output.writeInt(bits.limit());
+        output.writeInt(nbHashes);
+        output.writeInt(nbElements);
+        output.writeInt(0);
+        for (int i = 0; i < bits.limit(); i++)
+            output.writeLong(bits.get(i));
+    }
+
+    /**
+     * Filter as a view of the buffer at its current position, the position of the buffer is
+     * moved after the filter.
+     */
+    static AstroBloomFilter read(ByteBuffer buffer) {
+        int nbWords = buffer.getInt();
+        int nbHashes = buffer.getInt();
+        int nbElements = buffer.getInt();
+        buffer.getInt();
+        if (Integer.bitCount(nbWords) != 1)
+            throw new IllegalArgumentException("Invalid Bloom filter size: " + nbWords);
+        LongBuffer bits = AstroLexicon.slice(buffer, 8 * nbWords).asLongBuffer();
+        return new AstroBloomFilter(bits, nbHashes, nbElements);
+    }
+}
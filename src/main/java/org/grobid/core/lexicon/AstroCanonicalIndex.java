@@ -0,0 +1,209 @@
+package org.grobid.core.lexicon;
+
+import org.grobid.core.layout.LayoutToken;
+import org.grobid.core.utilities.OffsetPosition;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the lexicon terms by canonical key, to match the spacing, case and dash variants
+ * of a catalog designation ("NGC 1068", "NGC1068", "ngc 1068", "M4–37934" for "M4-37934"...)
+ * with a single lexicon entry.
+ *
+ * The canonical key of a string is the string without whitespace, lowercased, with the Unicode
+ * dashes and minus signs replaced by '-'. A key is computed char by char, so a window of
+ * tokens is looked-up with its running hash and without allocation. The first chars of the
+ * keys are in a Bloom filter, so a window is abandoned as soon as its first chars cannot
+ * start a key, most windows after their first token.
+ */
+public class AstroCanonicalIndex {
+
+    // canonical keys of the terms
+    private final AstroStringTable keys;
+
+    // index in terms of the term of every key
+    private final IntBuffer keyTerms;
+
+    // lexicon terms, as they appear in the lexicon file
+    private final AstroStringTable terms;
+
+    private final int maxKeyLength;
+
+    // prefixes of the keys, up to PREFIX_LENGTH chars
+    private final AstroBloomFilter prefixes;
+    static final int PREFIX_LENGTH = 4;
+
+    private AstroCanonicalIndex(AstroStringTable keys, IntBuffer keyTerms, AstroStringTable terms, int maxKeyLength,
+                                AstroBloomFilter prefixes) {
+        this.keys = keys;
+        this.keyTerms = keyTerms;
+        this.terms = terms;
+        this.maxKeyLength = maxKeyLength;
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * Index of the terms, the first term of a key being kept when several terms have the
+     * same key.
+     */
+    public static AstroCanonicalIndex build(List<String> lexiconTerms) {
+        Map<String, String> keyToTerm = new LinkedHashMap<>();
+        Set<String> keyPrefixes = new HashSet<>();
+        int maxKeyLength = 0;
+        for (String term : lexiconTerms) {
+            String key = canonicalKey(term);
+            if (key.length() == 0)
+                continue;
+            if (!keyToTerm.containsKey(key))
+                keyToTerm.put(key, term.trim());
+            maxKeyLength = Math.max(maxKeyLength, key.length());
+            for (int length = 1; length <= Math.min(key.length(), PREFIX_LENGTH); length++)
+                keyPrefixes.add(key.substring(0, length));
+        }
+        AstroStringTable keys = AstroStringTable.build(keyToTerm.keySet());
+        AstroStringTable terms = AstroStringTable.build(keyToTerm.values());
+        int[] keyTerms = new int[keys.size()];
+        for (Map.Entry<String, String> entry : keyToTerm.entrySet()) {
+            keyTerms[keys.indexOf(entry.getKey())] = terms.indexOf(entry.getValue());
+        }
+        return new AstroCanonicalIndex(keys, IntBuffer.wrap(keyTerms), terms, maxKeyLength,
+            AstroBloomFilter.build(keyPrefixes));
+    }
+
+    /**
+     * Canonical form of a char, 0 if the char is not part of the key.
+     */
+    static char canonicalChar(char c) {
+        if (Character.isWhitespace(c) || Character.isSpaceChar(c))
+            return 0;
+        if ((Character.getType(c) == Character.DASH_PUNCTUATION) || (c == '\u2212'))
+            return '-';
+        return Character.toLowerCase(c);
+    }
+
+    public static String canonicalKey(String string) {
+        StringBuilder key = new StringBuilder(string.length());
+        for (int i = 0; i < string.length(); i++) {
+            char c = canonicalChar(string.charAt(i));
+            if (c != 0)
+                key.append(c);
+        }
+        return key.toString();
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Lexicon term having the same canonical key as the string, null if none.
+     */
+    public String getTerm(String string) {
+        int index = keys.indexOf(canonicalKey(string));
+        return (index == -1) ? null : terms.get(keyTerms.get(index));
+    }
+
+    public List<OffsetPosition> matchLayoutToken(final List<LayoutToken> tokens) {
+        return match(new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return tokens.get(index).getText();
+            }
+
+            @Override
+            public int size() {
+                return tokens.size();
+            }
+        });
+    }
+
+    /**
+     * Positions of the sequences of tokens having the canonical key of a term, the
+     * positions being token indexes in the sequence. A sequence starts and ends with a
+     * letter or digit token.
+     *
+     * A window is extended token by token while its first PREFIX_LENGTH chars can start a
+     * key, so the table of the keys is probed only for the few windows which can match.
+     */
+    public List<OffsetPosition> match(List<String> tokens) {
+        List<OffsetPosition> results = new ArrayList<>();
+        if ((tokens == null) || (keys.size() == 0))
+            return results;
+        StringBuilder key = new StringBuilder(maxKeyLength + 1);
+        for (int start = 0; start < tokens.size(); start++) {
+            if (!isWordToken(tokens.get(start)))
+                continue;
+            key.setLength(0);
+            long hash = AstroStringTable.HASH_SEED;
+            boolean prefixChecked = false;
+            for (int end = start; end < tokens.size(); end++) {
+                String token = tokens.get(end);
+                if (token == null)
+                    break;
+                long prefixHash = 0;
+                for (int i = 0; (i < token.length()) && (key.length() <= maxKeyLength); i++) {
+                    char c = canonicalChar(token.charAt(i));
+                    if (c != 0) {
+                        key.append(c);
+                        hash = AstroStringTable.hashStep(hash, c);
+                        if (key.length() == PREFIX_LENGTH)
+                            prefixHash = AstroStringTable.hashFinish(hash);
+                    }
+                }
+                if (key.length() > maxKeyLength)
+                    break;
+                // the prefix of the window is checked until it has its full length
+                if (!prefixChecked) {
+                    if (key.length() < PREFIX_LENGTH)
+                        prefixHash = AstroStringTable.hashFinish(hash);
+                    if ((prefixHash != 0) && !prefixes.mightContain(prefixHash))
+                        break;
+                    prefixChecked = key.length() >= PREFIX_LENGTH;
+                }
+                if (isWordToken(token) && (keys.indexOf(key, AstroStringTable.hashFinish(hash)) != -1))
+                    results.add(new OffsetPosition(start, end));
+            }
+        }
+        return results;
+    }
+
+    private static boolean isWordToken(String token) {
+        return (token != null) && (token.length() > 0) && Character.isLetterOrDigit(token.charAt(0));
+    }
+
+    void write(DataOutputStream output) throws IOException {
+        keys.write(output);
+        terms.write(output);
+        output.writeInt(maxKeyLength);
+        output.writeInt(keyTerms.limit());
+        for (int i = 0; i < keyTerms.limit(); i++)
+            output.writeInt(keyTerms.get(i));
+        AstroLexicon.pad(output, 4 * (keyTerms.limit() + 2));
+        prefixes.write(output);
+    }
+
+    /**
+     * Index as a view of the buffer at its current position, the position of the buffer is
+     * moved after the index.
+     */
+    static AstroCanonicalIndex read(ByteBuffer buffer) {
+        AstroStringTable keys = AstroStringTable.read(buffer);
+        AstroStringTable terms = AstroStringTable.read(buffer);
+        int maxKeyLength = buffer.getInt();
+        int size = buffer.getInt();
+        IntBuffer keyTerms = AstroLexicon.slice(buffer, 4 * size).asIntBuffer();
+        AstroLexicon.skipPadding(buffer, 4 * (size + 2));
+        AstroBloomFilter prefixes = AstroBloomFilter.read(buffer);
+        return new AstroCanonicalIndex(keys, keyTerms, terms, maxKeyLength, prefixes);
+    }
+}
@@ -0,0 +1,382 @@
+package org.grobid.core.lexicon;
+
+import org.grobid.core.layout.LayoutToken;
+import org.grobid.core.utilities.OffsetPosition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deterministic recognition of the catalog designations with a strict grammar: NGC, IC, HD,
+ * HIP and Messier numbers, 2MASS Jhhmmssss+ddmmsss and SDSS Jhhmmss.ss+ddmmss.s.
+ *
+ * The grammars are written over classes of the AstroAnalyzer tokens (catalog prefix, number
+ * of digits, sign...) and compiled together into a single DFA by subset construction, which
+ * is run over the token stream from the tokens which can start a designation, and after a
+ * designation from its end. At every position the longest designation is kept. A match is
+ * kept only if it is not glued to another letter or digit token, not followed by a sign or a
+ * dot and a number (like "M4-37934", which is not Messier 4), and not followed by a single
+ * letter, which is a planet or component suffix (like "HD 209458 b"), so that the
+ * designations given by this recognizer are unambiguous. The other spans are left to the
+ * CRF model.
+ *
+ * The recognizer is immutable and can be shared by several threads.
+ */
+public class AstroDesignationRecognizer {
+
+    // token classes, the alphabet of the automaton
+    private static final int SPACE = 0;
+    private static final int NGC = 1;
+    private static final int IC = 2;
+    private static final int HD = 3;
+    private static final int HIP = 4;
+    private static final int M = 5;
+    private static final int MESSIER = 6;
+    private static final int MASS = 7;
+    private static final int SDSS = 8;
+    private static final int J = 9;
+    private static final int TWO = 10;         // "2", first token of "2MASS"
+    private static final int DIGITS_1 = 11;    // one digit but "2"
+    private static final int DIGITS_2_4 = 12;
+    private static final int DIGITS_5 = 13;
+    private static final int DIGITS_6 = 14;
+    private static final int DIGITS_7 = 15;
+    private static final int DIGITS_8 = 16;
+    private static final int SIGN = 17;        // + or -
+    private static final int DOT = 18;
+    private static final int OTHER = 19;
+    private static final int NB_CLASSES = 20;
+
+    private static final Map<String, Integer> KEYWORDS = new HashMap<>();
+    static {
+        KEYWORDS.put("NGC", NGC);
+        KEYWORDS.put("IC", IC);
+        KEYWORDS.put("HD", HD);
+        KEYWORDS.put("HIP", HIP);
+        KEYWORDS.put("M", M);
+        KEYWORDS.put("Messier", MESSIER);
+        KEYWORDS.put("MASS", MASS);
+        KEYWORDS.put("SDSS", SDSS);
+        KEYWORDS.put("J", J);
+        KEYWORDS.put("+", SIGN);
+        KEYWORDS.put("-", SIGN);
+        KEYWORDS.put("\u2212", SIGN);
+        KEYWORDS.put(".", DOT);
+    }
+
+    public enum Catalog {
+        NGC("NGC"),
+        IC("IC"),
+        HD("HD"),
+        HIP("HIP"),
+        MESSIER("M"),
+        TWO_MASS("2MASS"),
+        SDSS("SDSS");
+
+        private String prefix;
+
+        private Catalog(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+    }
+
+    /**
+     * A designation found in a sequence of tokens.
+     */
+    public static class Designation {
+        private final Catalog catalog;
+        private final OffsetPosition position;
+
+        Designation(Catalog catalog, int start, int end) {
+            this.catalog = catalog;
+            this.position = new OffsetPosition(start, end);
+        }
+
+        public Catalog getCatalog() {
+            return catalog;
+        }
+
+        /**
+         * Token indexes of the first and last tokens of the designation.
+         */
+        public OffsetPosition getPosition() {
+            return position;
+        }
+
+        /**
+         * Designation as the catalog prefix, a space and the identifier in the catalog
+         * without space, e.g. "M 31" for "Messier 31", from the tokens of the designation.
+         */
+        public String getNormalizedForm(List<LayoutToken> tokens) {
+            StringBuilder builder = new StringBuilder(catalog.getPrefix()).append(' ');
+            // the prefix is one token, except for 2MASS
+            int first = position.start + ((catalog == Catalog.TWO_MASS) ? 2 : 1);
+            for (int i = first; i <= position.end; i++) {
+                String text = tokens.get(i - position.start).getText();
+                if (text.trim().length() > 0)
+                    builder.append(text);
+            }
+            return builder.toString();
+        }
+    }
+
+    private static final int DEAD = -1;
+
+    // transitions of the DFA, state * NB_CLASSES + token class -> state
+    private final int[] transitions;
+
+    // accepted catalog of every DFA state, null if the state is not accepting
+    private final Catalog[] accepting;
+
+    private static volatile AstroDesignationRecognizer instance;
+
+    public static AstroDesignationRecognizer getInstance() {
+        if (instance == null) {
+            synchronized (AstroDesignationRecognizer.class) {
+                if (instance == null)
+                    instance = new AstroDesignationRecognizer();
+            }
+        }
+        return instance;
+    }
+
+    private AstroDesignationRecognizer() {
+        int[] numbers4 = {TWO, DIGITS_1, DIGITS_2_4};
+        int[] numbers6 = {TWO, DIGITS_1, DIGITS_2_4, DIGITS_5, DIGITS_6};
+
+        Nfa nfa = new Nfa();
+        nfa.addGrammar(Catalog.NGC, new int[]{NGC}, Nfa.SPACES, numbers4);
+        nfa.addGrammar(Catalog.IC, new int[]{IC}, Nfa.SPACES, numbers4);
+        nfa.addGrammar(Catalog.HD, new int[]{HD}, Nfa.SPACES, numbers6);
+        nfa.addGrammar(Catalog.HIP, new int[]{HIP}, Nfa.SPACES, numbers6);
+        nfa.addGrammar(Catalog.MESSIER, new int[]{M, MESSIER}, Nfa.SPACES, numbers4);
+        nfa.addGrammar(Catalog.TWO_MASS, new int[]{TWO}, new int[]{MASS}, Nfa.SPACES, new int[]{J},
+            new int[]{DIGITS_8}, new int[]{SIGN}, new int[]{DIGITS_7});
+        nfa.addGrammar(Catalog.SDSS, new int[]{SDSS}, Nfa.SPACES, new int[]{J},
+            new int[]{DIGITS_6}, new int[]{DOT}, numbers4, new int[]{SIGN},
+            new int[]{DIGITS_6}, new int[]{DOT}, new int[]{TWO, DIGITS_1});
+
+        // subset construction, the DFA states being the sets of NFA states
+        Map<BitSet, Integer> dfaStates = new LinkedHashMap<>();
+        List<BitSet> queue = new ArrayList<>();
+        List<int[]> rows = new ArrayList<>();
+        BitSet initial = nfa.startStates();
+        dfaStates.put(initial, 0);
+        queue.add(initial);
+        for (int i = 0; i < queue.size(); i++) {
+            BitSet current = queue.get(i);
+            int[] row = new int[NB_CLASSES];
+            Arrays.fill(row, DEAD);
+            for (int tokenClass = 0; tokenClass < NB_CLASSES; tokenClass++) {
+                BitSet next = nfa.move(current, tokenClass);
+                if (next.isEmpty())
+                    continue;
+                Integer state = dfaStates.get(next);
+                if (state == null) {
+                    state = queue.size();
+                    dfaStates.put(next, state);
+                    queue.add(next);
+                }
+                row[tokenClass] = state;
+            }
+            rows.add(row);
+        }
+
+        transitions = new int[rows.size() * NB_CLASSES];
+        accepting = new Catalog[rows.size()];
+        for (int state = 0; state < rows.size(); state++) {
+            System.arraycopy(rows.get(state), 0, transitions, state * NB_CLASSES, NB_CLASSES);
+            accepting[state] = nfa.accepted(queue.get(state));
+        }
+    }
+
+    static int tokenClass(String token) {
+        if ((token == null) || (token.length() == 0))
+            return OTHER;
+        Integer keyword = KEYWORDS.get(token);
+        if (keyword != null)
+            return keyword;
+        if (token.trim().length() == 0)
+            return SPACE;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if ((c < '0') || (c > '9'))
+                return OTHER;
+        }
+        switch (token.length()) {
+            case 1:
+                return token.equals("2") ? TWO : DIGITS_1;
+            case 2:
+            case 3:
+            case 4:
+                return DIGITS_2_4;
+            case 5:
+                return DIGITS_5;
+            case 6:
+                return DIGITS_6;
+            case 7:
+                return DIGITS_7;
+            case 8:
+                return DIGITS_8;
+            default:
+                return OTHER;
+        }
+    }
+
+    /**
+     * All the unambiguous designations of the sequence of tokens, in the order of the tokens.
+     */
+    public List<Designation> recognize(List<LayoutToken> tokens) {
+        List<Designation> results = new ArrayList<>();
+        if ((tokens == null) || (tokens.size() == 0))
+            return results;
+        int[] classes = new int[tokens.size()];
+        for (int i = 0; i < tokens.size(); i++)
+            classes[i] = tokenClass(tokens.get(i).getText());
+
+        int start = 0;
+        while (start < tokens.size()) {
+            // a designation starts with a catalog prefix
+            if (transitions[classes[start]] == DEAD) {
+                start++;
+                continue;
+            }
+            int state = 0;
+            int lastEnd = -1;
+            Catalog lastCatalog = null;
+            for (int pos = start; pos < tokens.size(); pos++) {
+                state = transitions[state * NB_CLASSES + classes[pos]];
+                if (state == DEAD)
+                    break;
+                if (accepting[state] != null) {
+                    lastEnd = pos;
+                    lastCatalog = accepting[state];
+                }
+            }
+            if ((lastCatalog != null) && isDelimited(tokens, classes, start, lastEnd)
+                && isValid(lastCatalog, tokens, lastEnd)) {
+                results.add(new Designation(lastCatalog, start, lastEnd));
+                start = lastEnd + 1;
+            } else {
+                start++;
+            }
+        }
+        return results;
+    }
+
+    private static boolean isWordToken(List<LayoutToken> tokens, int pos) {
+        String text = tokens.get(pos).getText();
+        return (text != null) && (text.length() > 0) && Character.isLetterOrDigit(text.charAt(0));
+    }
+
+    // the designation is not glued to other letters or digits, is not the beginning of a
+    // longer identifier and has no planet or component suffix
+    private static boolean isDelimited(List<LayoutToken> tokens, int[] classes, int start, int end) {
+        if ((start > 0) && isWordToken(tokens, start - 1))
+            return false;
+        if (end + 1 < tokens.size()) {
+            if (isWordToken(tokens, end + 1))
+                return false;
+            if (((classes[end + 1] == SIGN) || (classes[end + 1] == DOT)) && (end + 2 < tokens.size())
+                && isWordToken(tokens, end + 2))
+                return false;
+            int next = end + 1;
+            while ((next < tokens.size()) && (classes[next] == SPACE))
+                next++;
+            if ((next > end + 1) && (next < tokens.size()) && isSingleLetter(tokens, next)
+                && ((next + 1 == tokens.size()) || !isWordToken(tokens, next + 1)))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isSingleLetter(List<LayoutToken> tokens, int pos) {
+        String text = tokens.get(pos).getText();
+        return (text != null) && (text.length() == 1) && Character.isLetter(text.charAt(0));
+    }
+
+    private static boolean isValid(Catalog catalog, List<LayoutToken> tokens, int end) {
+        if (catalog == Catalog.MESSIER) {
+            // the Messier catalog has 110 objects
+            int number = Integer.parseInt(tokens.get(end).getText());
+            return (number >= 1) && (number <= 110);
+        }
+        return true;
+    }
+
+    /**
+     * Non-deterministic automaton of the grammars, every grammar being a sequence of token
+     * class sets, the set SPACES matching zero or more space tokens. The optional spaces are
+     * loops on a state, so the automaton has no epsilon transition.
+     */
+    private static class Nfa {
+        static final int[] SPACES = {SPACE};
+
+        // transitions: state -> token class -> states
+        private final List<List<int[]>> moves = new ArrayList<>();
+        private final List<Catalog> accepted = new ArrayList<>();
+        private final List<Integer> starts = new ArrayList<>();
+
+        private int newState() {
+            moves.add(new ArrayList<int[]>());
+            accepted.add(null);
+            return moves.size() - 1;
+        }
+
+        void addGrammar(Catalog catalog, int[]... elements) {
+            int state = newState();
+            starts.add(state);
+            for (int[] element : elements) {
+                if (element == SPACES) {
+                    // loop on the spaces, which are optional
+                    for (int tokenClass : element)
+                        moves.get(state).add(new int[]{tokenClass, state});
+                    continue;
+                }
+                int next = newState();
+                for (int tokenClass : element)
+                    moves.get(state).add(new int[]{tokenClass, next});
+                state = next;
+            }
+            accepted.set(state, catalog);
+        }
+
+        BitSet startStates() {
+            BitSet result = new BitSet();
+            for (int state : starts)
+                result.set(state);
+            return result;
+        }
+
+        BitSet move(BitSet states, int tokenClass) {
+            BitSet result = new BitSet();
+            for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+                for (int[] move : moves.get(state)) {
+                    if (move[0] == tokenClass)
+                        result.set(move[1]);
+                }
+            }
+            return result;
+        }
+
+        // catalog of the first grammar accepted by the set of states
+        Catalog accepted(BitSet states) {
+            Catalog result = null;
+            for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+                Catalog catalog = accepted.get(state);
+                if ((catalog != null) && ((result == null) || (catalog.ordinal() < result.ordinal())))
+                    result = catalog;
+            }
+            return result;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.grobid.core.analyzers.AstroAnalyzer;
 import org.grobid.core.exceptions.GrobidException;
 import org.grobid.core.exceptions.GrobidResourceException;
 import org.grobid.core.layout.LayoutToken;
+import org.grobid.core.utilities.AstroMetrics;
 import org.grobid.core.utilities.GrobidProperties;
 import org.grobid.core.utilities.OffsetPosition;
 import org.grobid.core.utilities.Pair;
@@ -11,9 +12,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class for managing the lexical resources for astronomical entities.
@@ -40,24 +61,205 @@ public class AstroLexicon {
 
     private static Logger LOGGER = LoggerFactory.getLogger(AstroLexicon.class);
 
-    private Set<String> astroVocabulary = null;
-    private FastMatcher astroPattern = null;
+    // header of the compiled lexicon file
+    static final int MAGIC = 0x4153544C;
+    static final int FORMAT_VERSION = 5;
 
-    private static volatile AstroLexicon instance;
+    public static final String LEXICON_FILE = "astroVoc.txt";
+    public static final String COMPILED_LEXICON_FILE = "astroVoc.bin";
 
-    public static synchronized AstroLexicon getInstance() {
-        if (instance == null)
-            instance = new AstroLexicon();
+    private final AstroStringTable astroVocabulary;
+    private final AstroTokenAutomaton astroPattern;
+    private final AstroCanonicalIndex astroCanonicalIndex;
 
-        return instance;
+    // creation time of the snapshot
+    private final long timestamp = System.currentTimeMillis();
+
+    // current snapshot of the lexicon, replaced as a whole when the lexicon is reloaded
+    private static final AtomicReference<AstroLexicon> instance = new AtomicReference<>();
+
+    // builds the new snapshots, one at a time, outside of the request threads
+    private static final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "astro-lexicon-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        AstroMetrics metrics = AstroMetrics.getInstance();
+        metrics.gauge("lexicon.prefilter.falsePositiveRate", () -> {
+            AstroLexicon lexicon = instance.get();
+            return (lexicon == null) ? null : lexicon.astroPattern.getFirstTokens().getFalsePositiveRate();
+        });
+        metrics.gauge("lexicon.prefilter.skipRatio", () -> {
+            long positions = metrics.counter(AstroTokenAutomaton.METRIC_POSITIONS).sum();
+            long skipped = metrics.counter(AstroTokenAutomaton.METRIC_PREFILTER_SKIPPED).sum();
+            return (positions == 0) ? null : (double) skipped / positions;
+        });
+        metrics.gauge("lexicon.names", () -> {
+            AstroLexicon lexicon = instance.get();
+            return (lexicon == null) ? null : lexicon.getNbNames();
+        });
+    }
+
+    // names also matched as spacing, case and dash variants, which changes the lexicon
+    // features: the model has to be trained with the same setting
+    private static volatile boolean variantMatching = false;
+
+    private static Thread watchThread = null;
+    private static final long WATCH_DELAY = 2000;
+
+    /**
+     * Current snapshot of the lexicon. The snapshot is immutable, a caller should get it once
+     * and use it for the whole processing of a sequence, so that a reload in between does
+     * not mix two versions of the lexicon.
+     */
+    public static AstroLexicon getInstance() {
+        AstroLexicon lexicon = instance.get();
+        if (lexicon == null)
+            lexicon = init();
+        return lexicon;
+    }
+
+    private static synchronized AstroLexicon init() {
+        AstroLexicon lexicon = instance.get();
+        if (lexicon == null) {
+            lexicon = load(getLexiconDirectory());
+            instance.set(lexicon);
+        }
+        return lexicon;
+    }
+
+    /**
+     * Build a new snapshot from the lexicon files in the background and swap it in once
+     * built. The current snapshot is kept if the new one cannot be built.
+     */
+    public static Future<AstroLexicon> reload() {
+        return reloadExecutor.submit(() -> {
+            try {
+                AstroLexicon lexicon = load(getLexiconDirectory());
+                instance.set(lexicon);
+                LOGGER.info("Astro lexicon reloaded");
+                return lexicon;
+            } catch (RuntimeException e) {
+                LOGGER.error("Reload of the astro lexicon failed, the current lexicon is kept", e);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Reload the lexicon every time the lexicon files are modified. The compiled file is mapped
+     * by the current lexicon, so it has to be replaced by a new file, as compile_astro_lexicon
+     * does, and not rewritten in place.
+     */
+    public static synchronized void watch() {
+        if (watchThread != null)
+            return;
+        final Path directory = getLexiconDirectory().toPath();
+        final WatchService watchService;
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, 
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new GrobidResourceException("Cannot watch the astro lexicon directory " + directory, e);
+        }
+        watchThread = new Thread(() -> {
+            while (true) {
+                WatchKey key;
+                try {
+                    key = watchService.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                boolean modified = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context == null)
+                        continue;
+                    if (context.toString().equals(LEXICON_FILE)) {
+                        modified = true;
+                    } else if (context.toString().equals(COMPILED_LEXICON_FILE)) {
+                        // writeCompiled renames a new file over the compiled file, which
+                        // creates it, the current mapping being kept on the previous file
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
+                            LOGGER.warn("The compiled astro lexicon has been rewritten in place, " + 
+                                "it should be replaced by compile_astro_lexicon");
+                        }
+                        modified = true;
+                    }
+                }
+                if (!key.reset())
+                    return;
+                if (modified) {
+                    // wait for the end of the writing of the files before reloading
+                    try {
+                        Thread.sleep(WATCH_DELAY);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    WatchKey pending;
+                    while ((pending = watchService.poll()) != null) {
+                        pending.pollEvents();
+                        pending.reset();
+                    }
+                    reload();
+                }
+            }
+        }, "astro-lexicon-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        LOGGER.info("Watching the astro lexicon files in " + directory);
+    }
+
+    private AstroLexicon(AstroStringTable astroVocabulary, 
+                         AstroTokenAutomaton astroPattern, 
+                         AstroCanonicalIndex astroCanonicalIndex) {
+        this.astroVocabulary = astroVocabulary;
+        this.astroPattern = astroPattern;
+        this.astroCanonicalIndex = astroCanonicalIndex;
+    }
+
+    public int getNbNames() {
+        return astroPattern.getNbTerms();
+    }
+
+    public int getVocabularySize() {
+        return astroVocabulary.size();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    static File getLexiconDirectory() {
+        return new File(GrobidProperties.getGrobidHomePath()+"/../grobid-astro/resources/lexicon/");
     }
 
-    private AstroLexicon() {
-        // init the lexicon
+    /**
+     * Load the lexicon of the directory: the compiled lexicon file is mapped in memory when it is
+     * present and up-to-date, otherwise the lexicon is built from the text file.
+     */
+    static AstroLexicon load(File directory) {
         LOGGER.info("Init astro lexicon");
-        astroVocabulary = new HashSet<String>();
+        File file = new File(directory, LEXICON_FILE);
+        File compiledFile = new File(directory, COMPILED_LEXICON_FILE);
+        if (compiledFile.exists() && (!file.exists() || (compiledFile.lastModified() >= file.lastModified()))) {
+            try {
+                return readCompiled(compiledFile);
+            } catch (IOException | GrobidResourceException e) {
+                LOGGER.warn("Cannot load compiled astro lexicon '" + compiledFile.getAbsolutePath() +
+                    "', the lexicon is built from the text file", e);
+            }
+        }
+        return readText(file);
+    }
 
-        File file = new File(GrobidProperties.getGrobidHomePath()+"/../grobid-astro/resources/lexicon/astroVoc.txt");
+    /**
+     * Build the lexicon from the text file, one name per line.
+     */
+    static AstroLexicon readText(File file) {
         if (!file.exists()) {
             throw new GrobidResourceException("Cannot initialize astro dictionary, because file '" + 
                 file.getAbsolutePath() + "' does not exists.");
@@ -68,24 +270,31 @@ public class AstroLexicon {
         }
 
         BufferedReader dis = null;
-        // read the lexicon file
+        // read the lexicon file, in one pass for the vocabulary and the name matcher
         try {
-            astroPattern = new FastMatcher(file, AstroAnalyzer.getInstance());
+            Set<String> vocabulary = new HashSet<String>();
+            List<String> terms = new ArrayList<String>();
+            AstroTokenAutomaton.Builder patternBuilder = new AstroTokenAutomaton.Builder();
 
             dis = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF8"));
             String l = null;
             while ((l = dis.readLine()) != null) {
                 if (l.length() == 0) continue;
+                patternBuilder.addTerm(l);
+                terms.add(l);
                 List<String> tokens = AstroAnalyzer.getInstance().tokenize(l);
                 for(String token : tokens) {
                     if (token.length() > 1) {
                         // should we filter out 100% numerical tokens?
-                        if (!astroVocabulary.contains(token)) {
-                            astroVocabulary.add(token);
-                        }
+                        vocabulary.add(token);
                     }
                 }
             }
+            AstroLexicon lexicon = new AstroLexicon(AstroStringTable.build(vocabulary), patternBuilder.build(), 
+                AstroCanonicalIndex.build(terms));
+            LOGGER.info("Astro lexicon: " + lexicon.astroPattern.getNbTerms() + " names, " + 
+                lexicon.astroVocabulary.size() + " vocabulary tokens");
+            return lexicon;
         } catch (FileNotFoundException e) {
             throw new GrobidException("AstroLexicon file not found.", e);
         } catch (IOException e) {
@@ -99,19 +308,153 @@ public class AstroLexicon {
             }
         }
     }
-	
+
+    /**
+     * Map a compiled lexicon file in memory, the vocabulary and the automaton are used directly
+     * from the mapped file without copy.
+     */
+    static AstroLexicon readCompiled(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            if ((magic != MAGIC) || (version != FORMAT_VERSION)) {
+                throw new GrobidResourceException("The file '" + file.getAbsolutePath() + 
+                    "' is not a compiled astro lexicon of version " + FORMAT_VERSION);
+            }
+            AstroStringTable vocabulary = AstroStringTable.read(buffer);
+            AstroTokenAutomaton pattern = AstroTokenAutomaton.read(buffer);
+            AstroCanonicalIndex canonicalIndex = AstroCanonicalIndex.read(buffer);
+            LOGGER.info("Astro lexicon mapped from " + file.getName() + ": " + pattern.getNbTerms() + 
+                " names, " + vocabulary.size() + " vocabulary tokens");
+            return new AstroLexicon(vocabulary, pattern, canonicalIndex);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new GrobidResourceException("The compiled astro lexicon '" + file.getAbsolutePath() + 
+                "' is truncated or corrupted.", e);
+        }
+    }
+
+    /**
+     * Write the lexicon in the compiled format. The lexicon is written to a temporary file
+     * next to the compiled file, which is then renamed, so that a lexicon mapped from the
+     * previous file is never truncated under the mapping.
+     */
+    void writeCompiled(File file) throws IOException {
+        File tmpFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                astroVocabulary.write(output);
+                astroPattern.write(output);
+                astroCanonicalIndex.write(output);
+            }
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    // the sections of the compiled file are aligned on 8 bytes
+    static void pad(DataOutputStream output, long writtenBytes) throws IOException {
+        for (long i = writtenBytes; (i % 8) != 0; i++)
+            output.writeByte(0);
+    }
+
+    static void skipPadding(ByteBuffer buffer, long readBytes) {
+        int padding = (int) ((8 - (readBytes % 8)) % 8);
+        buffer.position(buffer.position() + padding);
+    }
+
+    /**
+     * View of the next length bytes of the buffer, the position of the buffer is moved after
+     * these bytes.
+     */
+    static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
 	public boolean inAstroDictionary(String string) {
 		// here a lexical look-up...
 		return astroVocabulary.contains(string);
 	}
 
+    /**
+     * Lexicon name with the same canonical form (spacing, case, dashes) as the string, null if
+     * the string is not a variant of a lexicon name.
+     */
+    public String getCanonicalName(String string) {
+        return astroCanonicalIndex.getTerm(string);
+    }
+
+    /**
+     * Match the names also as variants of the lexicon names (spacing, case and dashes) in
+     * the name positions, false by default. The positions give the lexicon features of the
+     * tokens, so the model must have been trained with the same setting.
+     */
+    public static void setVariantMatching(boolean variantMatching) {
+        AstroLexicon.variantMatching = variantMatching;
+    }
+
+    public static boolean getVariantMatching() {
+        return variantMatching;
+    }
+
     public List<OffsetPosition> tokenPositionsAstroNamesVectorLabeled(List<Pair<String, String>> pairs) {
         List<OffsetPosition> results = astroPattern.matcherPairs(pairs);
-        return results;
+        if (!variantMatching)
+            return results;
+        List<String> tokens = new ArrayList<>(pairs.size());
+        for (Pair<String, String> pair : pairs)
+            tokens.add(pair.getA());
+        return merge(results, astroCanonicalIndex.match(tokens));
     }
 
     public List<OffsetPosition> tokenPositionsAstroNames(List<LayoutToken> vector) {
         List<OffsetPosition> results = astroPattern.matchLayoutToken(vector);
-        return results;
+        if (!variantMatching)
+            return results;
+        return merge(results, astroCanonicalIndex.matchLayoutToken(vector));
     }
+
+    /**
+     * Union of the name positions matched exactly and of the ones matched as variants, in the
+     * order of the exact matches: by end position, and from the longest to the shortest
+     * match for the same end position.
+     */
+    static List<OffsetPosition> merge(List<OffsetPosition> positions, List<OffsetPosition> variantPositions) {
+        if (variantPositions.isEmpty())
+            return positions;
+        List<OffsetPosition> results = new ArrayList<>(positions.size() + variantPositions.size());
+        results.addAll(positions);
+        results.addAll(variantPositions);
+        Collections.sort(results, POSITION_ORDER);
+        // variants which are also exact matches
+        int last = 0;
+        for (int i = 1; i < results.size(); i++) {
+            if (POSITION_ORDER.compare(results.get(last), results.get(i)) != 0)
+                results.set(++last, results.get(i));
+        }
+        return new ArrayList<>(results.subList(0, last + 1));
+    }
+
+    private static final Comparator<OffsetPosition> POSITION_ORDER = new Comparator<OffsetPosition>() {
+        @Override
+        public int compare(OffsetPosition p1, OffsetPosition p2) {
+            if (p1.end != p2.end)
+                return Integer.compare(p1.end, p2.end);
+            return Integer.compare(p1.start, p2.start);
+        }
+    };
 }
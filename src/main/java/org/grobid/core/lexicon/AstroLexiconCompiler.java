@@ -0,0 +1,32 @@
+package org.grobid.core.lexicon;
+
+import java.io.File;
+
+/**
+ * Compile the astro lexicon text file into the binary file which is memory-mapped at start-up,
+ * instead of tokenizing the text file and building the name automaton for every start.
+ *
+ * The compiled file is written next to the text file, and is ignored when the text file is
+ * more recent. It is written to a temporary file renamed over the previous compiled file, so
+ * it can be compiled while a service with a watched lexicon is running: the service keeps
+ * its mapping of the previous file until it has reloaded the new one.
+ */
+public class AstroLexiconCompiler {
+
+    private static final String USAGE = "Usage: {path to the lexicon directory, default resources/lexicon}";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 1) {
+            throw new IllegalStateException(USAGE);
+        }
+        File directory = new File((args.length == 1) ? args[0] : "resources/lexicon");
+        File file = new File(directory, AstroLexicon.LEXICON_FILE);
+        File compiledFile = new File(directory, AstroLexicon.COMPILED_LEXICON_FILE);
+
+        long start = System.currentTimeMillis();
+        AstroLexicon lexicon = AstroLexicon.readText(file);
+        lexicon.writeCompiled(compiledFile);
+        System.out.println("Compiled astro lexicon written to " + compiledFile.getAbsolutePath() +
+            " (" + compiledFile.length() + " bytes, " + (System.currentTimeMillis() - start) + " ms)");
+    }
+}
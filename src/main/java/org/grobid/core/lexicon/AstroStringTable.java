@@ -0,0 +1,199 @@
+package org.grobid.core.lexicon;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Immutable table of strings, sorted and packed in a char buffer. The index of a string in
+ * the table is used as identifier.
+ *
+ * The look-up goes through an open addressing table of the 64-bit hashes of the strings, a
+ * candidate with the same hash being verified against the packed chars, so that a look-up
+ * takes constant time and does not allocate.
+ *
+ * The buffers are either on the heap when the table is built, or views of a memory-mapped
+ * compiled lexicon file.
+ */
+public class AstroStringTable {
+
+    // start of every string in the chars, the last element being the total number of chars
+    private final IntBuffer offsets;
+    private final CharBuffer chars;
+    private final int size;
+
+    // hash of the string of every slot, EMPTY_HASH for a free slot, and index of the string
+    private final LongBuffer slotHashes;
+    private final IntBuffer slotIndexes;
+    private final int slotMask;
+
+    private static final long EMPTY_HASH = 0L;
+
+    private AstroStringTable(IntBuffer offsets, CharBuffer chars, LongBuffer slotHashes, IntBuffer slotIndexes) {
+        this.offsets = offsets;
+        this.chars = chars;
+        this.size = offsets.limit() - 1;
+        this.slotHashes = slotHashes;
+        this.slotIndexes = slotIndexes;
+        this.slotMask = slotHashes.limit() - 1;
+    }
+
+    public static AstroStringTable build(Collection<String> strings) {
+        List<String> sorted = new ArrayList<>(new TreeSet<>(strings));
+        int nbChars = 0;
+        for (String string : sorted)
+            nbChars += string.length();
+        int[] offsets = new int[sorted.size() + 1];
+        char[] chars = new char[nbChars];
+        int position = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            String string = sorted.get(i);
+            offsets[i] = position;
+            string.getChars(0, string.length(), chars, position);
+            position += string.length();
+        }
+        offsets[sorted.size()] = position;
+
+        // load factor under 0.5
+        int capacity = Integer.highestOneBit(Math.max(sorted.size(), 1) * 4 - 1);
+        long[] slotHashes = new long[capacity];
+        int[] slotIndexes = new int[capacity];
+        for (int i = 0; i < sorted.size(); i++) {
+            long hash = hash(sorted.get(i));
+            int slot = (int) hash & (capacity - 1);
+            while (slotHashes[slot] != EMPTY_HASH) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            slotHashes[slot] = hash;
+            slotIndexes[slot] = i;
+        }
+        return new AstroStringTable(IntBuffer.wrap(offsets), CharBuffer.wrap(chars),
+            LongBuffer.wrap(slotHashes), IntBuffer.wrap(slotIndexes));
+    }
+
+    /**
+     * 64-bit hash of the chars, never EMPTY_HASH.
+     */
+    static long hash(CharSequence string) {
+        long hash = HASH_SEED;
+        for (int i = 0; i < string.length(); i++) {
+            hash = hashStep(hash, string.charAt(i));
+        }
+        return hashFinish(hash);
+    }
+
+    // FNV-1a over the chars, followed by a final mix for the low bits used as slot
+    static final long HASH_SEED = 0xcbf29ce484222325L;
+
+    static long hashStep(long hash, char c) {
+        return (hash ^ c) * 0x100000001b3L;
+    }
+
+    static long hashFinish(long hash) {
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        return (hash == EMPTY_HASH) ? 1L : hash;
+    }
+
+    public static AstroStringTable empty() {
+        return build(Collections.<String>emptyList());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String get(int index) {
+        int start = offsets.get(index);
+        int end = offsets.get(index + 1);
+        StringBuilder builder = new StringBuilder(end - start);
+        for (int i = start; i < end; i++)
+            builder.append(chars.get(i));
+        return builder.toString();
+    }
+
+    /**
+     * Index of the string in the table, -1 if the string is not in the table.
+     */
+    public int indexOf(CharSequence string) {
+        return indexOf(string, hash(string));
+    }
+
+    /**
+     * Index of the string in the table with the hash of the string already computed.
+     */
+    int indexOf(CharSequence string, long hash) {
+        int slot = (int) hash & slotMask;
+        long current;
+        while ((current = slotHashes.get(slot)) != EMPTY_HASH) {
+            if (current == hash) {
+                int index = slotIndexes.get(slot);
+                if (equals(index, string))
+                    return index;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+        return -1;
+    }
+
+    public boolean contains(CharSequence string) {
+        return indexOf(string) != -1;
+    }
+
+    private boolean equals(int index, CharSequence string) {
+        int start = offsets.get(index);
+        if (offsets.get(index + 1) - start != string.length())
+            return false;
+        for (int i = 0; i < string.length(); i++) {
+            if (chars.get(start + i) != string.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    void write(DataOutputStream output) throws IOException {
+        output.writeInt(size);
+        output.writeInt(offsets.get(size));
+        for (int i = 0; i <= size; i++)
+            output.writeInt(offsets.get(i));
+        for (int i = 0; i < offsets.get(size); i++)
+            output.writeChar(chars.get(i));
+        AstroLexicon.pad(output, 4 * (size + 3) + 2 * offsets.get(size));
+        output.writeInt(slotHashes.limit());
+        output.writeInt(0);
+        for (int i = 0; i < slotHashes.limit(); i++)
+            output.writeLong(slotHashes.get(i));
+        for (int i = 0; i < slotIndexes.limit(); i++)
+            output.writeInt(slotIndexes.get(i));
+        AstroLexicon.pad(output, 4 * slotIndexes.limit());
+    }
+
+    /**
+     * Table as a view of the buffer at its current position, the position of the buffer is
+     * moved after the table.
+     */
+    static AstroStringTable read(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        int nbChars = buffer.getInt();
+        IntBuffer offsets = AstroLexicon.slice(buffer, 4 * (size + 1)).asIntBuffer();
+        CharBuffer chars = AstroLexicon.slice(buffer, 2 * nbChars).asCharBuffer();
+        AstroLexicon.skipPadding(buffer, 4 * (size + 3) + 2 * nbChars);
+        int capacity = buffer.getInt();
+        buffer.getInt();
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Invalid hash table capacity: " + capacity);
+        LongBuffer slotHashes = AstroLexicon.slice(buffer, 8 * capacity).asLongBuffer();
+        IntBuffer slotIndexes = AstroLexicon.slice(buffer, 4 * capacity).asIntBuffer();
+        AstroLexicon.skipPadding(buffer, 4 * capacity);
+        return new AstroStringTable(offsets, chars, slotHashes, slotIndexes);
+    }
+}
@@ -0,0 +1,463 @@
+package org.grobid.core.lexicon;
+
+import org.grobid.core.analyzers.AstroAnalyzer;
+import org.grobid.core.layout.LayoutToken;
+import org.grobid.core.utilities.AstroMetrics;
+import org.grobid.core.utilities.OffsetPosition;
+import org.grobid.core.utilities.Pair;
+import org.grobid.core.utilities.TextUtilities;
+import org.grobid.core.utilities.UnicodeUtil;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-pattern matcher of the lexicon terms in a sequence of tokens, as an Aho-Corasick
+ * automaton over token identifiers.
+ *
+ * The terms and the input are tokenized with the AstroAnalyzer, normalized and lowercased,
+ * and spaces and delimiters are ignored, as for FastMatcher. All the matches, possibly
+ * overlapping, are found in one pass over the tokens: the matches are ordered by end position,
+ * and for the same end position from the longest to the shortest match, which is the order
+ * of the FastMatcher results. The cost of a match does not depend on the number of terms.
+ *
+ * The automaton is stored in primitive buffers, either on the heap when built from the
+ * lexicon file, or as views of a memory-mapped compiled lexicon. It is immutable and can be
+ * shared by several threads.
+ */
+public class AstroTokenAutomaton {
+
+    public static final int ROOT = 0;
+    private static final int NONE = -1;
+    private static final long EMPTY_KEY = -1L;
+
+    // tokens of the terms, the token identifier being the index in the table
+    private final AstroStringTable tokens;
+
+    // goto function, open addressing table with key (state << 32 | token identifier)
+    private final LongBuffer transitionKeys;
+    private final IntBuffer transitionTargets;
+    private final int transitionMask;
+
+    // failure link of every state
+    private final IntBuffer fail;
+
+    // number of tokens from the root to the state, i.e. length of the term for final states
+    private final IntBuffer depth;
+
+    // 1 if the state is the end of a term
+    private final ByteBuffer terminal;
+
+    // closest final state following the failure links, NONE if no such state
+    private final IntBuffer outputLink;
+
+    // tokens which can start a term, checked before the look-up of a token at the root
+    private final AstroBloomFilter firstTokens;
+
+    private final int nbStates;
+    private final int nbTerms;
+
+    // names of the metrics of the matching
+    public static final String METRIC_POSITIONS = "lexicon.matcher.positions";
+    public static final String METRIC_PREFILTER_SKIPPED = "lexicon.prefilter.skipped";
+
+    private AstroTokenAutomaton(AstroStringTable tokens,
+                                LongBuffer transitionKeys,
+                                IntBuffer transitionTargets,
+                                IntBuffer fail,
+                                IntBuffer depth,
+                                ByteBuffer terminal,
+                                IntBuffer outputLink,
+                                AstroBloomFilter firstTokens,
+                                int nbTerms) {
+        this.tokens = tokens;
+        this.transitionKeys = transitionKeys;
+        this.transitionTargets = transitionTargets;
+        this.transitionMask = transitionKeys.limit() - 1;
+        this.fail = fail;
+        this.depth = depth;
+        this.terminal = terminal;
+        this.outputLink = outputLink;
+        this.firstTokens = firstTokens;
+        this.nbStates = depth.limit();
+        this.nbTerms = nbTerms;
+    }
+
+    private static long mix(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= (key >>> 33);
+        return key;
+    }
+
+    private static long transitionKey(int state, int tokenId) {
+        return ((long) state << 32) | (tokenId & 0xffffffffL);
+    }
+
+    private static int getTransition(LongBuffer keys, IntBuffer targets, int mask, long key) {
+        int slot = (int) mix(key) & mask;
+        long current;
+        while ((current = keys.get(slot)) != EMPTY_KEY) {
+            if (current == key)
+                return targets.get(slot);
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    private static void putTransition(LongBuffer keys, IntBuffer targets, int mask, long key, int target) {
+        int slot = (int) mix(key) & mask;
+        while (keys.get(slot) != EMPTY_KEY) {
+            slot = (slot + 1) & mask;
+        }
+        keys.put(slot, key);
+        targets.put(slot, target);
+    }
+
+    private int getTransition(int state, int tokenId) {
+        return getTransition(transitionKeys, transitionTargets, transitionMask, transitionKey(state, tokenId));
+    }
+
+    private boolean isTerminal(int state) {
+        return terminal.get(state) != 0;
+    }
+
+    public int getNbTerms() {
+        return nbTerms;
+    }
+
+    public int getNbStates() {
+        return nbStates;
+    }
+
+    public AstroBloomFilter getFirstTokens() {
+        return firstTokens;
+    }
+
+    /**
+     * Tokens which are skipped by the matching, as in FastMatcher.
+     */
+    static boolean isIgnored(String token) {
+        return token.equals(" ") || token.equals("\n") || (TextUtilities.delimiters.indexOf(token) != -1);
+    }
+
+    static String normalize(String token) {
+        return UnicodeUtil.normaliseText(token).toLowerCase();
+    }
+
+    /**
+     * Identifier of a token of the lexicon terms, -1 if the token does not appear in any term.
+     */
+    int getTokenId(String token) {
+        return tokens.indexOf(normalize(token));
+    }
+
+    public List<OffsetPosition> matchLayoutToken(final List<LayoutToken> tokens) {
+        return match(new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return tokens.get(index).getText();
+            }
+
+            @Override
+            public int size() {
+                return tokens.size();
+            }
+        });
+    }
+
+    public List<OffsetPosition> matcherPairs(final List<Pair<String, String>> pairs) {
+        return match(new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return pairs.get(index).getA();
+            }
+
+            @Override
+            public int size() {
+                return pairs.size();
+            }
+        });
+    }
+
+    /**
+     * Positions of all the terms in a sequence of tokens, the positions being token indexes
+     * in the sequence.
+     */
+    public List<OffsetPosition> match(List<String> tokens) {
+        List<OffsetPosition> results = new ArrayList<>();
+        if ((tokens == null) || (tokens.size() == 0))
+            return results;
+
+        // positions of the tokens which are not ignored
+        int[] positions = new int[tokens.size()];
+        int nbPositions = 0;
+        int nbSkipped = 0;
+        int state = ROOT;
+        for (int currentPos = 0; currentPos < tokens.size(); currentPos++) {
+            String token = tokens.get(currentPos);
+            if ((token == null) || isIgnored(token))
+                continue;
+            positions[nbPositions++] = currentPos;
+
+            // at the root, only the first token of a term can lead to a match
+            if ((state == ROOT) && !firstTokens.mightContainToken(token)) {
+                nbSkipped++;
+                continue;
+            }
+
+            int tokenId = getTokenId(token);
+            if (tokenId == NONE) {
+                state = ROOT;
+                continue;
+            }
+
+            int next = getTransition(state, tokenId);
+            while ((next == NONE) && (state != ROOT)) {
+                state = fail.get(state);
+                next = getTransition(state, tokenId);
+            }
+            state = (next == NONE) ? ROOT : next;
+
+            // all the terms ending at this position, from the longest to the shortest
+            int output = isTerminal(state) ? state : outputLink.get(state);
+            while (output != NONE) {
+                int start = positions[nbPositions - depth.get(output)];
+                results.add(new OffsetPosition(start, currentPos));
+                output = outputLink.get(output);
+            }
+        }
+        AstroMetrics.getInstance().add(METRIC_POSITIONS, nbPositions);
+        AstroMetrics.getInstance().add(METRIC_PREFILTER_SKIPPED, nbSkipped);
+        return results;
+    }
+
+    void write(DataOutputStream output) throws IOException {
+        tokens.write(output);
+        output.writeInt(nbStates);
+        output.writeInt(nbTerms);
+        output.writeInt(transitionKeys.limit());
+        for (int i = 0; i < transitionKeys.limit(); i++)
+            output.writeLong(transitionKeys.get(i));
+        for (int i = 0; i < transitionTargets.limit(); i++)
+            output.writeInt(transitionTargets.get(i));
+        for (int i = 0; i < nbStates; i++)
+            output.writeInt(fail.get(i));
+        for (int i = 0; i < nbStates; i++)
+            output.writeInt(depth.get(i));
+        for (int i = 0; i < nbStates; i++)
+            output.writeInt(outputLink.get(i));
+        for (int i = 0; i < nbStates; i++)
+            output.writeByte(terminal.get(i));
+        AstroLexicon.pad(output, 12 + 12 * transitionKeys.limit() + 13 * nbStates);
+        firstTokens.write(output);
+    }
+
+    /**
+     * Automaton as a view of the buffer at its current position, the position of the buffer
+     * is moved after the automaton.
+     */
+    static AstroTokenAutomaton read(ByteBuffer buffer) {
+        AstroStringTable tokens = AstroStringTable.read(buffer);
+        int nbStates = buffer.getInt();
+        int nbTerms = buffer.getInt();
+        int capacity = buffer.getInt();
+        LongBuffer keys = AstroLexicon.slice(buffer, 8 * capacity).asLongBuffer();
+        IntBuffer targets = AstroLexicon.slice(buffer, 4 * capacity).asIntBuffer();
+        IntBuffer fail = AstroLexicon.slice(buffer, 4 * nbStates).asIntBuffer();
+        IntBuffer depth = AstroLexicon.slice(buffer, 4 * nbStates).asIntBuffer();
+        IntBuffer outputLink = AstroLexicon.slice(buffer, 4 * nbStates).asIntBuffer();
+        ByteBuffer terminal = AstroLexicon.slice(buffer, nbStates);
+        AstroLexicon.skipPadding(buffer, 12 + 12 * capacity + 13 * nbStates);
+        AstroBloomFilter firstTokens = AstroBloomFilter.read(buffer);
+        return new AstroTokenAutomaton(tokens, keys, targets, fail, depth, terminal, outputLink, firstTokens, 
+            nbTerms);
+    }
+
+    /**
+     * Incremental construction of the automaton, as a trie of the terms first.
+     */
+    public static class Builder {
+        private final AstroAnalyzer analyzer = AstroAnalyzer.getInstance();
+        private final Map<String, Integer> tokenIds = new HashMap<>();
+
+        private int nbStates = 1;
+        private int nbTerms = 0;
+        private int[] label = new int[1024];
+        private int[] firstChild = new int[1024];
+        private int[] nextSibling = new int[1024];
+        private int[] depth = new int[1024];
+        private boolean[] terminal = new boolean[1024];
+
+        // transitions of the trie, open addressing table with a load factor under 0.5
+        private long[] transitionKeys = new long[2048];
+        private int[] transitionTargets = new int[2048];
+
+        public Builder() {
+            firstChild[ROOT] = NONE;
+            nextSibling[ROOT] = NONE;
+            label[ROOT] = NONE;
+            Arrays.fill(transitionKeys, EMPTY_KEY);
+        }
+
+        /**
+         * Add a term of the lexicon, return false if the term has no token to be matched.
+         */
+        public boolean addTerm(String term) {
+            if (StringUtils.isBlank(term))
+                return false;
+            term = UnicodeUtil.normaliseText(term);
+            term = StringUtils.normalizeSpace(term);
+            term = term.toLowerCase();
+
+            int state = ROOT;
+            for (String token : analyzer.tokenize(term)) {
+                if ((token.length() == 0) || isIgnored(token))
+                    continue;
+                Integer tokenId = tokenIds.get(token);
+                if (tokenId == null) {
+                    tokenId = tokenIds.size();
+                    tokenIds.put(token, tokenId);
+                }
+                state = child(state, tokenId);
+            }
+            if (state == ROOT)
+                return false;
+            if (!terminal[state]) {
+                terminal[state] = true;
+                nbTerms++;
+            }
+            return true;
+        }
+
+        private int child(int state, int tokenId) {
+            long key = transitionKey(state, tokenId);
+            int mask = transitionKeys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (transitionKeys[slot] != EMPTY_KEY) {
+                if (transitionKeys[slot] == key)
+                    return transitionTargets[slot];
+                slot = (slot + 1) & mask;
+            }
+
+            if (nbStates == label.length)
+                grow();
+            int child = nbStates++;
+            label[child] = tokenId;
+            depth[child] = depth[state] + 1;
+            firstChild[child] = NONE;
+            nextSibling[child] = firstChild[state];
+            firstChild[state] = child;
+            putTransition(key, child);
+            return child;
+        }
+
+        private void putTransition(long key, int target) {
+            // the number of transitions is the number of states minus the root
+            if (nbStates * 2 > transitionKeys.length) {
+                long[] keys = transitionKeys;
+                int[] targets = transitionTargets;
+                transitionKeys = new long[keys.length * 2];
+                Arrays.fill(transitionKeys, EMPTY_KEY);
+                transitionTargets = new int[targets.length * 2];
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != EMPTY_KEY)
+                        insert(keys[i], targets[i]);
+                }
+            }
+            insert(key, target);
+        }
+
+        private void insert(long key, int target) {
+            int mask = transitionKeys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (transitionKeys[slot] != EMPTY_KEY) {
+                slot = (slot + 1) & mask;
+            }
+            transitionKeys[slot] = key;
+            transitionTargets[slot] = target;
+        }
+
+        private void grow() {
+            int capacity = label.length * 2;
+            label = Arrays.copyOf(label, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            depth = Arrays.copyOf(depth, capacity);
+            terminal = Arrays.copyOf(terminal, capacity);
+        }
+
+        public AstroTokenAutomaton build() {
+            // token identifiers become the index of the token in the sorted token table
+            AstroStringTable tokens = AstroStringTable.build(tokenIds.keySet());
+            int[] tokenIndex = new int[tokenIds.size()];
+            for (Map.Entry<String, Integer> entry : tokenIds.entrySet()) {
+                tokenIndex[entry.getValue()] = tokens.indexOf(entry.getKey());
+            }
+
+            // goto function with the final token identifiers
+            LongBuffer keys = LongBuffer.allocate(transitionKeys.length);
+            IntBuffer targets = IntBuffer.allocate(transitionKeys.length);
+            int mask = transitionKeys.length - 1;
+            for (int i = 0; i < keys.limit(); i++)
+                keys.put(i, EMPTY_KEY);
+            for (int state = 0; state < nbStates; state++) {
+                for (int child = firstChild[state]; child != NONE; child = nextSibling[child]) {
+                    AstroTokenAutomaton.putTransition(keys, targets, mask, transitionKey(state, tokenIndex[label[child]]), child);
+                }
+            }
+
+            // failure and output links, breadth-first from the root
+            int[] fail = new int[nbStates];
+            int[] outputLink = new int[nbStates];
+            Arrays.fill(outputLink, NONE);
+            int[] queue = new int[nbStates];
+            int head = 0;
+            int tail = 0;
+            for (int child = firstChild[ROOT]; child != NONE; child = nextSibling[child]) {
+                fail[child] = ROOT;
+                queue[tail++] = child;
+            }
+            while (head < tail) {
+                int state = queue[head++];
+                for (int child = firstChild[state]; child != NONE; child = nextSibling[child]) {
+                    int tokenId = tokenIndex[label[child]];
+                    int f = fail[state];
+                    int next = getTransition(keys, targets, mask, transitionKey(f, tokenId));
+                    while ((next == NONE) && (f != ROOT)) {
+                        f = fail[f];
+                        next = getTransition(keys, targets, mask, transitionKey(f, tokenId));
+                    }
+                    fail[child] = (next == NONE) ? ROOT : next;
+                    outputLink[child] = terminal[fail[child]] ? fail[child] : outputLink[fail[child]];
+                    queue[tail++] = child;
+                }
+            }
+
+            List<String> firstTokens = new ArrayList<>();
+            for (int child = firstChild[ROOT]; child != NONE; child = nextSibling[child])
+                firstTokens.add(tokens.get(tokenIndex[label[child]]));
+
+            byte[] terminalFlags = new byte[nbStates];
+            for (int state = 0; state < nbStates; state++)
+                terminalFlags[state] = terminal[state] ? (byte) 1 : (byte) 0;
+
+            return new AstroTokenAutomaton(tokens, keys, targets,
+                IntBuffer.wrap(fail), IntBuffer.wrap(Arrays.copyOf(depth, nbStates)),
+                ByteBuffer.wrap(terminalFlags), IntBuffer.wrap(outputLink), AstroBloomFilter.build(firstTokens), 
+                nbTerms);
+        }
+    }
+}
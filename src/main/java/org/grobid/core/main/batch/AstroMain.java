@@ -3,6 +3,8 @@ package org.grobid.core.main.batch;
 import org.grobid.core.engines.AstroParser;
 import org.grobid.core.main.GrobidHomeFinder;
 import org.grobid.core.utilities.GrobidProperties;
+import org.grobid.core.features.FeaturesVectorAstro;
+import org.grobid.core.lexicon.AstroLexicon;
 import org.grobid.core.utilities.AstroConfiguration;
 import org.grobid.core.main.LibraryLoader;
 import org.grobid.core.utilities.GrobidConfig.ModelParameters;
@@ -99,6 +101,8 @@ public class AstroMain {
                 LOGGER.error("The config file does not appear valid, see resources/config/grobid-astro.yaml", e);
             }
             GrobidProperties.getInstance().addModel(astroConfiguration.getModel());
+            AstroLexicon.setVariantMatching(astroConfiguration.getLexiconVariants());
+            FeaturesVectorAstro.setTokenCacheSize(astroConfiguration.getFeatureCacheSize());
 
             LibraryLoader.load();
         } catch (final Exception exp) {
@@ -8,6 +8,53 @@ public class AstroConfiguration {
     public String templatePath;
     public String grobidHome;
 
+    // reload the lexicon when the lexicon files are modified
+    public boolean lexiconWatch = false;
+
+    // match the names of the lexicon also as spacing, case and dash variants in the lexicon
+    // features, the model must be trained with the same setting
+    public boolean lexiconVariants = false;
+
+    // engine labeling with the wapiti model: "wapiti" for the native library
+    public String labeler = "wapiti";
+
+    // pool of labelers: number of labelers (0 for a single shared labeler, -1 for one per
+    // core), maximum number of requests waiting for a labeler and maximum waiting time in
+    // milliseconds
+    public int labelerPoolSize = 0;
+    public int labelerQueueSize = 100;
+    public long labelerWaitTimeout = 30000;
+
+    // gate of the sequences given to the labeler: "off", "conservative" or "aggressive"
+    public String labelGate = "off";
+
+    // split of the sequences longer than labelChunkSize tokens (0 for no split) into chunks
+    // labeled in parallel, with labelChunkOverlap tokens of context around every chunk
+    public int labelChunkSize = 0;
+    public int labelChunkOverlap = 10;
+
+    // number of threads processing the zones of the PDF documents and labeling their
+    // sequences, shared by all the requests (0 or 1 for the thread of the request, -1 for the
+    // number of cores)
+    public int pdfThreads = 0;
+
+    // cache of the labels of the sequences: maximum number of sequences (0 for no cache) and
+    // file where the cache is saved at shutdown and loaded at start-up (null for no file)
+    public int labelCacheSize = 0;
+    public String labelCacheFile = null;
+
+    // maximum number of distinct tokens whose features are cached (0 for no cache)
+    public int featureCacheSize = 100000;
+
+    // batching of the texts of the concurrent processAstroText requests: maximum waiting time
+    // in milliseconds (0 for no batching), maximum number of texts of a batch, maximum number
+    // of texts waiting or being processed and maximum time in milliseconds a request waits
+    // for its result
+    public long textBatchDelay = 0;
+    public int textBatchSize = 64;
+    public int textBatchQueueSize = 1000;
+    public long textBatchTimeout = 30000;
+
     public ModelParameters model;
 
     public String getCorpusPath() {
@@ -34,6 +81,142 @@ public class AstroConfiguration {
         this.grobidHome = grobidHome;
     }
 
+    public boolean getLexiconWatch() {
+        return this.lexiconWatch;
+    }
+
+    public void setLexiconWatch(boolean lexiconWatch) {
+        this.lexiconWatch = lexiconWatch;
+    }
+
+    public boolean getLexiconVariants() {
+        return this.lexiconVariants;
+    }
+
+    public void setLexiconVariants(boolean lexiconVariants) {
+        this.lexiconVariants = lexiconVariants;
+    }
+
+    public String getLabeler() {
+        return this.labeler;
+    }
+
+    public void setLabeler(String labeler) {
+        this.labeler = labeler;
+    }
+
+    public int getLabelerPoolSize() {
+        return this.labelerPoolSize;
+    }
+
+    public void setLabelerPoolSize(int labelerPoolSize) {
+        this.labelerPoolSize = labelerPoolSize;
+    }
+
+    public int getLabelerQueueSize() {
+        return this.labelerQueueSize;
+    }
+
+    public void setLabelerQueueSize(int labelerQueueSize) {
+        this.labelerQueueSize = labelerQueueSize;
+    }
+
+    public long getLabelerWaitTimeout() {
+        return this.labelerWaitTimeout;
+    }
+
+    public void setLabelerWaitTimeout(long labelerWaitTimeout) {
+        this.labelerWaitTimeout = labelerWaitTimeout;
+    }
+
+    public String getLabelGate() {
+        return this.labelGate;
+    }
+
+    public void setLabelGate(String labelGate) {
+        this.labelGate = labelGate;
+    }
+
+    public int getLabelChunkSize() {
+        return this.labelChunkSize;
+    }
+
+    public void setLabelChunkSize(int labelChunkSize) {
+        this.labelChunkSize = labelChunkSize;
+    }
+
+    public int getLabelChunkOverlap() {
+        return this.labelChunkOverlap;
+    }
+
+    public void setLabelChunkOverlap(int labelChunkOverlap) {
+        this.labelChunkOverlap = labelChunkOverlap;
+    }
+
+    public int getPdfThreads() {
+        return this.pdfThreads;
+    }
+
+    public void setPdfThreads(int pdfThreads) {
+        this.pdfThreads = pdfThreads;
+    }
+
+    public int getLabelCacheSize() {
+        return this.labelCacheSize;
+    }
+
+    public void setLabelCacheSize(int labelCacheSize) {
+        this.labelCacheSize = labelCacheSize;
+    }
+
+    public int getFeatureCacheSize() {
+        return this.featureCacheSize;
+    }
+
+    public void setFeatureCacheSize(int featureCacheSize) {
+        this.featureCacheSize = featureCacheSize;
+    }
+
+    public String getLabelCacheFile() {
+        return this.labelCacheFile;
+    }
+
+    public void setLabelCacheFile(String labelCacheFile) {
+        this.labelCacheFile = labelCacheFile;
+    }
+
+    public long getTextBatchDelay() {
+        return this.textBatchDelay;
+    }
+
+    public void setTextBatchDelay(long textBatchDelay) {
+        this.textBatchDelay = textBatchDelay;
+    }
+
+    public int getTextBatchSize() {
+        return this.textBatchSize;
+    }
+
+    public void setTextBatchSize(int textBatchSize) {
+        this.textBatchSize = textBatchSize;
+    }
+
+    public int getTextBatchQueueSize() {
+        return this.textBatchQueueSize;
+    }
+
+    public void setTextBatchQueueSize(int textBatchQueueSize) {
+        this.textBatchQueueSize = textBatchQueueSize;
+    }
+
+    public long getTextBatchTimeout() {
+        return this.textBatchTimeout;
+    }
+
+    public void setTextBatchTimeout(long textBatchTimeout) {
+        this.textBatchTimeout = textBatchTimeout;
+    }
+
     public ModelParameters getModel() {
         return model;
     }
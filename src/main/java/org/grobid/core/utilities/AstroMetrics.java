@@ -0,0 +1,85 @@
+package org.grobid.core.utilities;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counters and gauges of the astro processing, exposed by the astroMetrics service.
+ *
+ * The counters are updated without lock, callers on a hot path should accumulate locally
+ * and add once per document or sequence.
+ */
+public class AstroMetrics {
+
+    private static final AstroMetrics instance = new AstroMetrics();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<Number>> gauges = new ConcurrentHashMap<>();
+
+    public static AstroMetrics getInstance() {
+        return instance;
+    }
+
+    private AstroMetrics() {
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    public void add(String name, long value) {
+        if (value != 0)
+            counter(name).add(value);
+    }
+
+    public void increment(String name) {
+        counter(name).increment();
+    }
+
+    /**
+     * Register a value computed when the metrics are read, replacing any gauge of the same name.
+     */
+    public void gauge(String name, Supplier<Number> value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Current values of all the counters and gauges, by name.
+     */
+    public SortedMap<String, Number> snapshot() {
+        SortedMap<String, Number> values = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            values.put(counter.getKey(), counter.getValue().sum());
+        }
+        for (Map.Entry<String, Supplier<Number>> gauge : gauges.entrySet()) {
+            Number value = gauge.getValue().get();
+            if (value != null)
+                values.put(gauge.getKey(), value);
+        }
+        return values;
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{ ");
+        boolean first = true;
+        for (Map.Entry<String, Number> value : snapshot().entrySet()) {
+            if (first)
+                first = false;
+            else
+                json.append(", ");
+            json.append("\"" + value.getKey() + "\" : ");
+            double number = value.getValue().doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number))
+                json.append("null");
+            else
+                json.append(value.getValue());
+        }
+        json.append(" }");
+        return json.toString();
+    }
+}
@@ -32,4 +32,14 @@ public interface AstroPaths {
      * path extension for annotating a PDF file with the recognized astronomical entities.
      */
     public static final String PATH_ANNOTATE_ASTRO_PDF= "annotateAstroPDF";
+
+    /**
+     * path extension for reloading the lexicon of astronomical names without restart.
+     */
+    public static final String PATH_ASTRO_LEXICON_RELOAD= "reloadAstroLexicon";
+
+    /**
+     * path extension for the metrics of the astronomical entity recognition service.
+     */
+    public static final String PATH_ASTRO_METRICS= "astroMetrics";
 }
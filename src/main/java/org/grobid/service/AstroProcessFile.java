@@ -5,6 +5,7 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import org.grobid.core.data.AstroEntity;
 import org.grobid.core.document.Document;
+import org.grobid.core.engines.AstroLabelerBusyException;
 import org.grobid.core.engines.AstroParser;
 import org.grobid.core.engines.Engine;
 import org.grobid.core.engines.config.GrobidAnalysisConfig;
@@ -20,7 +21,6 @@ import javax.ws.rs.core.Response.Status;
 import java.io.File;
 import java.io.InputStream;
 import java.util.List;
-import java.util.NoSuchElementException;
 
 /**
  *
@@ -37,9 +37,11 @@ public class AstroProcessFile {
      * Uploads the origin PDF, process it and return PDF annotations for references in JSON.
      *
      * @param inputStream the data of origin PDF
+     * @param withGeometry if false, the page sizes and the bounding boxes of the entities are
+     *                     not computed nor returned, only the entities
      * @return a response object containing the JSON annotations
      */
-	public static Response processPDFAnnotation(final InputStream inputStream) {
+	public static Response processPDFAnnotation(final InputStream inputStream, boolean withGeometry) {
         LOGGER.debug(methodLogIn()); 
         Response response = null;
         File originFile = null;
@@ -65,26 +67,30 @@ public class AstroProcessFile {
 				json.append("{ ");
 
 				// page height and width
-                json.append("\"pages\":[");
-				List<Page> pages = doc.getPages();
                 boolean first = true;
-                for(Page page : pages) {
-    				if (first) 
-                        first = false;
-                    else
-                        json.append(", ");    
-    				json.append("{\"page_height\":" + page.getHeight());
-    				json.append(", \"page_width\":" + page.getWidth() + "}");
+                if (withGeometry) {
+                    json.append("\"pages\":[");
+                    List<Page> pages = doc.getPages();
+                    for(Page page : pages) {
+                        if (first) 
+                            first = false;
+                        else
+                            json.append(", ");    
+                        json.append("{\"page_height\":" + page.getHeight());
+                        json.append(", \"page_width\":" + page.getWidth() + "}");
+                    }
+                    json.append("], ");
                 }
 
-				json.append("], \"entities\":[");
+				json.append("\"entities\":[");
 				first = true;
 				for(AstroEntity entity : entities) {
 					if (!first)
 						json.append(", ");
 					else
 						first = false;
-					json.append(entity.toJson());
+					// the bounding boxes are computed here, from the tokens of the entity
+					json.append(entity.toJson(withGeometry));
 				}
 				
 				json.append("]");
@@ -102,8 +108,8 @@ public class AstroProcessFile {
                     response = Response.status(Status.NO_CONTENT).build();
                 }
             }
-        } catch (NoSuchElementException nseExp) {
-            LOGGER.error("Could not get an instance of AstroParser. Sending service unavailable.");
+        } catch (AstroLabelerBusyException busyExp) {
+            LOGGER.warn("No capacity to label the document. Sending service unavailable: " + busyExp.getMessage());
             response = Response.status(Status.SERVICE_UNAVAILABLE).build();
         } catch (Exception exp) {
             LOGGER.error("An unexpected exception occurs. ", exp);
@@ -0,0 +1,72 @@
+package org.grobid.service;
+
+import org.grobid.core.lexicon.AstroLexicon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Administration of the astro lexicon of a running service.
+ *
+ * @author Patrice
+ */
+public class AstroProcessLexicon {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AstroProcessLexicon.class);
+
+    // maximum waiting time for the reload, the reload goes on in the background after it
+    private static final long RELOAD_TIMEOUT = 10;
+
+    /**
+     * Reload the lexicon from the lexicon files, the requests under processing and the new
+     * requests use the current lexicon until the new one is ready.
+     *
+     * @return a response object containing the size of the new lexicon in JSON
+     */
+    public static Response reloadLexicon() {
+        LOGGER.debug(methodLogIn());
+        Response response = null;
+        try {
+            long start = System.currentTimeMillis();
+            Future<AstroLexicon> reload = AstroLexicon.reload();
+            AstroLexicon lexicon = reload.get(RELOAD_TIMEOUT, TimeUnit.MINUTES);
+            long end = System.currentTimeMillis();
+
+            StringBuilder json = new StringBuilder();
+            json.append("{ \"names\" : " + lexicon.getNbNames());
+            json.append(", \"vocabulary\" : " + lexicon.getVocabularySize());
+            json.append(", \"runtime\" : " + (end-start));
+            json.append("}");
+            response = Response
+                    .ok()
+                    .type("application/json")
+                    .entity(json.toString())
+                    .build();
+        } catch (TimeoutException e) {
+            LOGGER.warn("The reload of the astro lexicon is still running.");
+            response = Response.status(Status.ACCEPTED).build();
+        } catch (ExecutionException e) {
+            LOGGER.error("The reload of the astro lexicon failed. ", e.getCause());
+            response = Response.status(Status.INTERNAL_SERVER_ERROR).entity(e.getCause().getMessage()).build();
+        } catch (Exception e) {
+            LOGGER.error("An unexpected exception occurs. ", e);
+            response = Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        }
+        LOGGER.debug(methodLogOut());
+        return response;
+    }
+
+    public static String methodLogIn() {
+        return ">> " + AstroProcessLexicon.class.getName() + "." + Thread.currentThread().getStackTrace()[1].getMethodName();
+    }
+
+    public static String methodLogOut() {
+        return "<< " + AstroProcessLexicon.class.getName() + "." + Thread.currentThread().getStackTrace()[1].getMethodName();
+    }
+}
@@ -0,0 +1,36 @@
+package org.grobid.service;
+
+import org.grobid.core.utilities.AstroMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Metrics of the astro processing of a running service.
+ *
+ * @author Patrice
+ */
+public class AstroProcessMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AstroProcessMetrics.class);
+
+    /**
+     * @return a response object containing the current counters and gauges in JSON
+     */
+    public static Response getMetrics() {
+        Response response = null;
+        try {
+            response = Response
+                    .ok()
+                    .type("application/json")
+                    .entity(AstroMetrics.getInstance().toJson())
+                    .build();
+        } catch (Exception e) {
+            LOGGER.error("An unexpected exception occurs. ", e);
+            response = Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        }
+        return response;
+    }
+}
@@ -2,7 +2,9 @@ package org.grobid.service;
 
 import org.apache.commons.lang3.StringUtils;
 import org.grobid.core.data.AstroEntity;
+import org.grobid.core.engines.AstroLabelerBusyException;
 import org.grobid.core.engines.AstroParser;
+import org.grobid.core.engines.AstroTextBatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,7 +12,9 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 
@@ -40,7 +44,17 @@ public class AstroProcessString {
 			List<AstroEntity> entities = null;
 			text = text.replaceAll("\\n", " ").replaceAll("\\t", " ");
 			long start = System.currentTimeMillis();
-			entities = parser.processText(text);
+			AstroTextBatcher batcher = AstroTextBatcher.getInstance();
+			if (batcher != null) {
+				try {
+					entities = batcher.submit(text).get(batcher.getTimeout(), TimeUnit.MILLISECONDS);
+				} catch (ExecutionException e) {
+					throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+				} catch (TimeoutException e) {
+					throw new AstroLabelerBusyException("No result for the text after " + batcher.getTimeout() + " ms", e);
+				}
+			} else
+				entities = parser.processText(text);
 			long end = System.currentTimeMillis();
 
 			if (entities != null) {
@@ -69,8 +83,8 @@ public class AstroProcessString {
 			} else {
 				response = Response.status(Status.OK).entity(retValString).type(MediaType.TEXT_PLAIN).build();
 			}
-		} catch (NoSuchElementException nseExp) {
-			LOGGER.error("Could not get an instance of AstroParser. Sending service unavailable.");
+		} catch (AstroLabelerBusyException busyExp) {
+			LOGGER.warn("No capacity to label the text. Sending service unavailable: " + busyExp.getMessage());
 			response = Response.status(Status.SERVICE_UNAVAILABLE).build();
 		} catch (Exception e) {
 			LOGGER.error("An unexpected exception occurs. ", e);
@@ -1,6 +1,8 @@
 package org.grobid.service;
 
 import org.glassfish.jersey.media.multipart.FormDataParam;
+import org.grobid.core.engines.AstroParser;
+import org.grobid.core.engines.AstroTextBatcher;
 import org.grobid.core.lexicon.AstroLexicon;
 import org.grobid.core.main.GrobidHomeFinder;
 import org.grobid.core.main.LibraryLoader;
@@ -35,6 +37,7 @@ public class AstroRestService implements AstroPaths {
     private static final String XML = "xml";
     private static final String PDF = "pdf";
     private static final String INPUT = "input";
+    private static final String GEOMETRY = "geometry";
 
     public AstroRestService() {
         LOGGER.info("Init Servlet AstroRestService.");
@@ -57,8 +60,14 @@ public class AstroRestService implements AstroPaths {
 
             GrobidProperties.getInstance().addModel(astroConfiguration.getModel());
 
+            AstroLexicon.setVariantMatching(astroConfiguration.getLexiconVariants());
             AstroLexicon.getInstance();
+            if (astroConfiguration.getLexiconWatch())
+                AstroLexicon.watch();
             LibraryLoader.load();
+            AstroParser.getInstance().configureLabeling(astroConfiguration);
+            AstroTextBatcher.start(astroConfiguration.getTextBatchDelay(), astroConfiguration.getTextBatchSize(),
+                astroConfiguration.getTextBatchQueueSize(), astroConfiguration.getTextBatchTimeout());
 
         } catch (final Exception exp) {
             LOGGER.error("GROBID astro initialisation failed. ", exp);
@@ -87,7 +96,24 @@ public class AstroRestService implements AstroPaths {
 	@Consumes(MediaType.MULTIPART_FORM_DATA)
 	@Produces("application/json")
 	@POST
-	public Response processPDFAnnotation(@FormDataParam(INPUT) InputStream inputStream) {
-		return AstroProcessFile.processPDFAnnotation(inputStream);
+	public Response processPDFAnnotation(@FormDataParam(INPUT) InputStream inputStream, 
+										 @FormDataParam(GEOMETRY) String geometry) {
+		// the coordinates are given unless geometry is "false" or "0"
+		boolean withGeometry = !("false".equalsIgnoreCase(geometry) || "0".equals(geometry));
+		return AstroProcessFile.processPDFAnnotation(inputStream, withGeometry);
+	}
+
+	@Path(PATH_ASTRO_LEXICON_RELOAD)
+	@Produces("application/json")
+	@POST
+	public Response reloadLexicon() {
+		return AstroProcessLexicon.reloadLexicon();
+	}
+
+	@Path(PATH_ASTRO_METRICS)
+	@Produces("application/json")
+	@GET
+	public Response getMetrics() {
+		return AstroProcessMetrics.getMetrics();
 	}
 }
@@ -3,13 +3,21 @@ package org.grobid.trainer;
 import org.grobid.core.GrobidModels;
 import org.grobid.core.document.Document;
 import org.grobid.core.document.DocumentSource;
+import org.grobid.core.engines.AstroSequenceGate;
+import org.grobid.core.engines.AstroSequenceLabeler;
+import org.grobid.core.engines.AstroTextLabeler;
+import org.grobid.core.engines.AstroViterbiLabeler;
 import org.grobid.core.engines.EngineParsers;
 import org.grobid.core.engines.config.GrobidAnalysisConfig;
+import org.grobid.core.engines.label.AstroTaggingLabels;
+import org.grobid.core.engines.tagging.GenericTagger;
 import org.grobid.core.exceptions.GrobidException;
+import org.grobid.core.features.AstroFeatureMatrix;
 import org.grobid.core.features.FeaturesVectorAstro;
 import org.grobid.core.layout.Block;
 import org.grobid.core.layout.LayoutToken;
 import org.grobid.core.layout.PDFAnnotation;
+import org.grobid.core.lexicon.AstroDesignationRecognizer;
 import org.grobid.core.lexicon.AstroLexicon;
 import org.grobid.core.utilities.AstroConfiguration;
 import org.grobid.core.utilities.GrobidProperties;
@@ -18,16 +26,21 @@ import org.grobid.core.utilities.Pair;
 import org.grobid.trainer.evaluation.EvaluationUtilities;
 import org.grobid.core.main.GrobidHomeFinder;
 
+import org.apache.commons.io.FileUtils;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import java.io.*;
+import java.util.BitSet;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Arrays;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * Training of the astronomical entity recognition model
  *
@@ -35,6 +48,9 @@ import java.util.Arrays;
  */
 public class AstroTrainer extends AbstractTrainer {
 
+    // number of different sequences detailed by the comparison of the labelers
+    private static final int MAX_REPORTED_DIFFERENCES = 10;
+
     private AstroLexicon astroLexicon = null;
     private AstroConfiguration astroConfiguration = null;
 
@@ -55,6 +71,9 @@ public class AstroTrainer extends AbstractTrainer {
 
     public void setAstroConfiguration(AstroConfiguration config) {
         this.astroConfiguration = config;
+        // the lexicon features of the training data as at parsing time
+        if (config != null)
+            AstroLexicon.setVariantMatching(config.getLexiconVariants());
     }
 
     /**
@@ -427,17 +446,15 @@ public class AstroTrainer extends AbstractTrainer {
     private void addFeatures(List<Pair<String, String>> texts,
                              Writer writer,
                              List<OffsetPosition> astroTokenPositions) {
-        int totalLine = texts.size();
         int posit = 0;
-        int currentAstroIndex = 0;
-        List<OffsetPosition> localPositions = astroTokenPositions;
-        boolean isAstroPattern = false;
+        BitSet astroNameCoverage = FeaturesVectorAstro.astroNameCoverage(astroTokenPositions);
+        // the vectors of the sequence are written at once
+        StringBuilder result = new StringBuilder();
         try {
             for (Pair<String, String> lineP : texts) {
                 String token = lineP.getA();
                 if (token.trim().equals("@newline")) {
-                    writer.write("\n");
-                    writer.flush();
+                    result.append('\n');
                 }
 
                 String label = lineP.getB();
@@ -446,33 +463,19 @@ public class AstroTrainer extends AbstractTrainer {
                 }*/
 
                 // do we have an astro at position posit?
-                if ((localPositions != null) && (localPositions.size() > 0)) {
-                    for (int mm = currentAstroIndex; mm < localPositions.size(); mm++) {
-                        if ((posit >= localPositions.get(mm).start) &&
-                                (posit <= localPositions.get(mm).end)) {
-                            isAstroPattern = true;
-                            currentAstroIndex = mm;
-                            break;
-                        } else if (posit < localPositions.get(mm).start) {
-                            isAstroPattern = false;
-                            break;
-                        } else if (posit > localPositions.get(mm).end) {
-                            continue;
-                        }
-                    }
-                }
+                boolean isAstroPattern = astroNameCoverage.get(posit);
 
                 FeaturesVectorAstro featuresVector =
                         FeaturesVectorAstro.addFeaturesAstro(token, label,
                                 astroLexicon.inAstroDictionary(token), isAstroPattern);
                 if (featuresVector.label == null)
                     continue;
-                writer.write(featuresVector.printVector());
-                writer.write("\n");
-                writer.flush();
+                featuresVector.printVector(result);
+                result.append('\n');
                 posit++;
-                isAstroPattern = false;
             }
+            writer.write(result.toString());
+            writer.flush();
         } catch (Exception e) {
             throw new GrobidException("An exception occured while running Grobid.", e);
         }
@@ -491,6 +494,165 @@ public class AstroTrainer extends AbstractTrainer {
         return EvaluationUtilities.evaluateStandard(tmpEvalPath.getAbsolutePath(), getTagger()).toString();
     }
 
+    /**
+     * Compare the labels of the Java decoder of the model with the labels of the native Wapiti
+     * library on the evaluation corpus: the report gives the number of different labels and
+     * the first different sequences, with the labels of wapiti and of the Java decoder of
+     * every token.
+     *
+     * @return true if the labels of all the sequences are identical
+     */
+    public boolean compareLabelers(StringBuilder report) {
+        File evalDataF = GrobidProperties.getInstance().getEvalCorpusPath(
+                new File(new File("resources").getAbsolutePath()), model);
+
+        File tmpEvalPath = getTempEvaluationDataPath();
+        createCRFPPData(evalDataF, tmpEvalPath);
+
+        AstroSequenceLabeler javaLabeler = AstroViterbiLabeler.load(GrobidProperties.getModelPath(model));
+        GenericTagger tagger = getTagger();
+        AstroSequenceLabeler wapitiLabeler = new AstroTextLabeler(tagger::label);
+
+        int nbSequences = 0;
+        int nbTokens = 0;
+        int nbDifferentSequences = 0;
+        int nbDifferentTokens = 0;
+        StringBuilder differences = new StringBuilder();
+        try {
+            String data = FileUtils.readFileToString(tmpEvalPath, UTF_8);
+            for (String sequence : data.split("\n\\s*\n")) {
+                if (sequence.trim().isEmpty())
+                    continue;
+                AstroFeatureMatrix matrix = AstroFeatureMatrix.parse(sequence.trim());
+                int[] expected = wapitiLabeler.label(matrix);
+                int[] actual = javaLabeler.label(matrix);
+                int nbDifferences = 0;
+                for (int i = 0; i < expected.length; i++) {
+                    if (expected[i] != actual[i])
+                        nbDifferences++;
+                }
+                nbSequences++;
+                nbTokens += expected.length;
+                if (nbDifferences > 0) {
+                    nbDifferentSequences++;
+                    nbDifferentTokens += nbDifferences;
+                    if (nbDifferentSequences <= MAX_REPORTED_DIFFERENCES) {
+                        differences.append("\nsequence ").append(nbSequences).append(":\n");
+                        for (int i = 0; i < expected.length; i++) {
+                            differences.append(matrix.getVector(i).string).append('\t')
+                                .append(AstroTaggingLabels.labelString(expected[i])).append('\t')
+                                .append(AstroTaggingLabels.labelString(actual[i]))
+                                .append((expected[i] != actual[i]) ? "\t<<<\n" : "\n");
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new GrobidException("Cannot read the evaluation data " + tmpEvalPath.getPath(), e);
+        }
+
+        report.append("Java labeler compared to wapiti: ").append(nbDifferentTokens)
+            .append(" different labels out of ").append(nbTokens).append(" tokens, ")
+            .append(nbDifferentSequences).append(" different sequences out of ").append(nbSequences);
+        if (nbDifferentSequences > 0) {
+            report.append("\n\ntoken, wapiti label, java label of the first different sequences:")
+                .append(differences);
+        }
+        return nbDifferentSequences == 0;
+    }
+
+    /**
+     * Recall lost by every labeling gate on the evaluation corpus: number of sequences skipped,
+     * and entities of the skipped sequences, for the entities of the corpus and for the
+     * entities found by the model in all the sequences.
+     */
+    public String evaluateGates() {
+        File evalDataF = GrobidProperties.getInstance().getEvalCorpusPath(
+                new File(new File("resources").getAbsolutePath()), model);
+
+        File tmpEvalPath = getTempEvaluationDataPath();
+        createCRFPPData(evalDataF, tmpEvalPath);
+
+        GenericTagger tagger = getTagger();
+        AstroSequenceLabeler labeler = new AstroTextLabeler(tagger::label);
+        AstroDesignationRecognizer recognizer = AstroDesignationRecognizer.getInstance();
+
+        AstroSequenceGate[] gates = AstroSequenceGate.values();
+        int nbSequences = 0;
+        int nbEntities = 0;
+        int nbLabeledEntities = 0;
+        int[] nbSkippedSequences = new int[gates.length];
+        int[] nbSkippedEntities = new int[gates.length];
+        int[] nbSkippedLabeledEntities = new int[gates.length];
+        try {
+            String data = FileUtils.readFileToString(tmpEvalPath, UTF_8);
+            for (String sequence : data.split("\n\\s*\n")) {
+                if (sequence.trim().isEmpty())
+                    continue;
+                AstroFeatureMatrix matrix = AstroFeatureMatrix.parse(sequence.trim());
+
+                // the designations of the tokens separated by spaces, the rows of the matrix
+                // being the even tokens
+                List<LayoutToken> tokens = new ArrayList<>();
+                for (int row = 0; row < matrix.size(); row++) {
+                    if (row > 0)
+                        tokens.add(new LayoutToken(" "));
+                    tokens.add(new LayoutToken(matrix.getVector(row).string));
+                }
+                BitSet designationRows = new BitSet(matrix.size());
+                for (AstroDesignationRecognizer.Designation designation : recognizer.recognize(tokens)) {
+                    for (int i = designation.getPosition().start; i <= designation.getPosition().end; i++) {
+                        if (i % 2 == 0)
+                            designationRows.set(i / 2);
+                    }
+                }
+
+                int sequenceEntities = countEntities(matrix, designationRows, null);
+                int sequenceLabeledEntities = countEntities(matrix, designationRows, labeler.label(matrix));
+                nbSequences++;
+                nbEntities += sequenceEntities;
+                nbLabeledEntities += sequenceLabeledEntities;
+                for (int g = 0; g < gates.length; g++) {
+                    if (!gates[g].isCandidate(matrix, designationRows)) {
+                        nbSkippedSequences[g]++;
+                        nbSkippedEntities[g] += sequenceEntities;
+                        nbSkippedLabeledEntities[g] += sequenceLabeledEntities;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new GrobidException("Cannot read the evaluation data " + tmpEvalPath.getPath(), e);
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(nbSequences).append(" sequences, ").append(nbEntities).append(" entities, ")
+            .append(nbLabeledEntities).append(" entities found by the model, without the designations\n");
+        for (int g = 0; g < gates.length; g++) {
+            report.append(String.format("%-12s skipped sequences: %6d (%5.1f%%)   lost entities: %5d (%5.2f%%)   " + 
+                "lost model entities: %5d (%5.2f%%)\n", gates[g].name().toLowerCase(), 
+                nbSkippedSequences[g], percent(nbSkippedSequences[g], nbSequences), 
+                nbSkippedEntities[g], percent(nbSkippedEntities[g], nbEntities), 
+                nbSkippedLabeledEntities[g], percent(nbSkippedLabeledEntities[g], nbLabeledEntities)));
+        }
+        return report.toString();
+    }
+
+    // number of entities of the sequence not starting with a designation, from the labels of
+    // the corpus if labels is null
+    private static int countEntities(AstroFeatureMatrix matrix, BitSet designationRows, int[] labels) {
+        int count = 0;
+        for (int row = 0; row < matrix.size(); row++) {
+            int label = (labels != null) ? labels[row] : AstroTaggingLabels.labelCode(matrix.getVector(row).label);
+            if ((label == AstroTaggingLabels.LABEL_OBJECT_BEGIN) && !designationRows.get(row))
+                count++;
+        }
+        return count;
+    }
+
+    private static double percent(int count, int total) {
+        return (total == 0) ? 0.0 : (100.0 * count) / total;
+    }
+
     public String splitTrainEvaluate(Double split, boolean random) {
         System.out.println("PAths :\n" + getCorpusPath() + "\n" + GrobidProperties.getModelPath(model).getAbsolutePath() + "\n" + getTempTrainingDataPath().getAbsolutePath() + "\n" + getTempEvaluationDataPath().getAbsolutePath() + " \nrand " + random);
 
@@ -17,13 +17,14 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
  */
 public class AstroTrainerRunner {
 
-    private static final String USAGE = "Usage: {0 - train, 1 - evaluate, 2 - split, train and evaluate} {astro} "
+    private static final String USAGE = "Usage: {0 - train, 1 - evaluate, 2 - split, train and evaluate, "
+            + "3 - compare the java labeler with wapiti, 4 - evaluate the recall loss of the labeling gates} {astro} "
             + "-s { [0.0 - 1.0] - split ratio, optional} "
             + "-b {epsilon, window, nbMax}"
             + "-t NBThreads";
 
     enum RunType {
-        TRAIN, EVAL, SPLIT;
+        TRAIN, EVAL, SPLIT, COMPARE, GATE;
 
         public static RunType getRunType(int i) {
             for (RunType t : values()) {
@@ -131,6 +132,7 @@ public class AstroTrainerRunner {
         }
 
         AstroTrainer trainer = new AstroTrainer();
+        trainer.setAstroConfiguration(astroConfiguration);
 
         if (breakParams)
             trainer.setParams(epsilon, window, nbMaxIterations);
@@ -145,6 +147,17 @@ public class AstroTrainerRunner {
             case SPLIT:
                 System.out.println(AbstractTrainer.runSplitTrainingEvaluation(trainer, split));
                 break;
+            case COMPARE:
+                // a different label fails the run
+                StringBuilder report = new StringBuilder();
+                boolean identical = trainer.compareLabelers(report);
+                System.out.println(report);
+                if (!identical)
+                    System.exit(1);
+                break;
+            case GATE:
+                System.out.println(trainer.evaluateGates());
+                break;
             default:
                 throw new IllegalStateException("Invalid RunType: " + mode.name());
         }
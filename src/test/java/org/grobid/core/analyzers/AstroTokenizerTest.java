@@ -0,0 +1,96 @@
+package org.grobid.core.analyzers;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Equivalence of the single pass AstroTokenizer with the former StringTokenizer + regex split
+ * tokenization.
+ */
+public class AstroTokenizerTest {
+
+    private static final String LEGACY_REGEX = "(?<=[a-zA-Z])(?=\\d)|(?<=\\d)(?=\\D)";
+
+    private static List<String> legacyTokenize(String text) {
+        List<String> result = new ArrayList<>();
+        StringTokenizer st = new StringTokenizer(text, AstroAnalyzer.DELIMITERS, true);
+        while (st.hasMoreTokens()) {
+            String token = st.nextToken();
+            String[] subtokens = token.split(LEGACY_REGEX);
+            for (int i = 0; i < subtokens.length; i++) {
+                result.add(subtokens[i]);
+            }
+        }
+        return result;
+    }
+
+    private static void assertSameTokenization(String text) {
+        List<String> expected = legacyTokenize(text);
+        List<String> tokens = new ArrayList<>();
+        int previousEnd = 0;
+        AstroTokenizer tokenizer = new AstroTokenizer(text);
+        while (tokenizer.next()) {
+            // tokens are contiguous and their offsets point to the token in the text
+            assertEquals(previousEnd, tokenizer.start());
+            assertEquals(tokenizer.token(), text.substring(tokenizer.start(), tokenizer.end()));
+            previousEnd = tokenizer.end();
+            tokens.add(tokenizer.token());
+        }
+        assertEquals(text.length(), previousEnd);
+        assertEquals(expected, tokens);
+        assertEquals(expected, AstroAnalyzer.getInstance().tokenize(text));
+    }
+
+    @Test
+    public void testTokenizeSimpleCases() throws Exception {
+        assertSameTokenization("GRB 050219, M4-37934 and NGC1068.");
+        assertSameTokenization("2MASS J05233+1423 and SDSS J052334.56+142311.2");
+        assertSameTokenization("ab12cd3 4e 5 12.5° − 12 arcsec");
+        assertSameTokenization("😀1a😀");
+        assertSameTokenization("");
+    }
+
+    @Test
+    public void testTokenizeEvaluationCorpus() throws Exception {
+        List<File> files = new ArrayList<>();
+        File[] evaluationFiles = new File("resources/dataset/astro/evaluation").listFiles();
+        if (evaluationFiles != null) {
+            for (File file : evaluationFiles)
+                files.add(file);
+        }
+        File[] corpusFiles = new File("resources/dataset/astro/corpus").listFiles();
+        if (corpusFiles != null) {
+            for (File file : corpusFiles)
+                files.add(file);
+        }
+        files.add(new File("src/test/resources/text.txt"));
+        assertTrue(files.size() > 1);
+
+        for (File file : files) {
+            if (!file.isFile())
+                continue;
+            String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+            assertSameTokenization(content);
+            for (String line : content.split("\n")) {
+                assertSameTokenization(line);
+            }
+        }
+    }
+
+    @Test
+    public void testTokenizeLexicon() throws Exception {
+        List<String> lines = FileUtils.readLines(new File("resources/lexicon/astroVoc.txt"), StandardCharsets.UTF_8);
+        for (String line : lines) {
+            assertSameTokenization(line);
+        }
+    }
+}
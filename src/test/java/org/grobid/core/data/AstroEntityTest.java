@@ -0,0 +1,50 @@
+package org.grobid.core.data;
+
+import org.grobid.core.layout.LayoutToken;
+import org.grobid.core.utilities.OffsetPosition;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class AstroEntityTest {
+
+    @Test
+    public void testTokenRange() throws Exception {
+        List<LayoutToken> store = new ArrayList<>();
+        for (String text : new String[]{"the", " ", "Crab", " ", "Nebula", " ", "is"})
+            store.add(new LayoutToken(text));
+
+        AstroEntity entity = new AstroEntity("Crab Nebula");
+        entity.setTokens(store, 2, 5);
+        assertEquals(3, entity.getTokens().size());
+        assertEquals("Crab", entity.getTokens().get(0).getText());
+        assertEquals("Nebula", entity.getTokens().get(2).getText());
+
+        // tokens without coordinates have no bounding box
+        assertNull(entity.getBoundingBoxes());
+        assertFalse(entity.toJson().contains("boundingBoxes"));
+    }
+
+    @Test
+    public void testOffsets() throws Exception {
+        AstroEntity entity = new AstroEntity("M31");
+        entity.setOffsetStart(4);
+        entity.setOffsetEnd(7);
+        OffsetPosition offsets = entity.getOffsets();
+        assertEquals(4, offsets.start);
+        assertEquals(7, offsets.end);
+
+        // the returned position is a copy
+        offsets.start = 0;
+        assertEquals(4, entity.getOffsetStart());
+
+        entity.setOffsets(new OffsetPosition(10, 13));
+        assertEquals(10, entity.getOffsetStart());
+        assertEquals(13, entity.getOffsetEnd());
+    }
+}
@@ -0,0 +1,104 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.features.AstroFeatureMatrix;
+import org.grobid.core.features.AstroFeatureMatrices;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class AstroLabelCacheTest {
+
+    // labeler giving the length of the tokens, counting the calls and the labeled matrices
+    private static final class CountingLabeler implements AstroSequenceLabeler {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger matrices = new AtomicInteger();
+
+        @Override
+        public int[] label(AstroFeatureMatrix matrix) {
+            calls.incrementAndGet();
+            matrices.incrementAndGet();
+            int[] labels = new int[matrix.size()];
+            for (int i = 0; i < labels.length; i++)
+                labels[i] = matrix.getColumn(i, 0).length();
+            return labels;
+        }
+
+        @Override
+        public List<int[]> label(List<AstroFeatureMatrix> batch) {
+            calls.incrementAndGet();
+            List<int[]> labels = new ArrayList<>();
+            for (AstroFeatureMatrix matrix : batch) {
+                matrices.incrementAndGet();
+                int[] sequence = new int[matrix.size()];
+                for (int i = 0; i < sequence.length; i++)
+                    sequence[i] = matrix.getColumn(i, 0).length();
+                labels.add(sequence);
+            }
+            return labels;
+        }
+    }
+
+    @Test
+    public void testHit() throws Exception {
+        CountingLabeler labeler = new CountingLabeler();
+        AstroLabelCache cache = new AstroLabelCache(labeler, "v1", 10);
+
+        assertArrayEquals(new int[]{3, 6}, cache.label(AstroFeatureMatrices.of("The", "galaxy")));
+        int[] labels = cache.label(AstroFeatureMatrices.of("The", "galaxy"));
+        assertArrayEquals(new int[]{3, 6}, labels);
+        assertEquals(1, labeler.calls.get());
+        assertEquals(1, cache.stats().hitCount());
+
+        // the cached labels are not changed through a result
+        labels[0] = 0;
+        assertArrayEquals(new int[]{3, 6}, cache.label(AstroFeatureMatrices.of("The", "galaxy")));
+    }
+
+    @Test
+    public void testBatchMisses() throws Exception {
+        CountingLabeler labeler = new CountingLabeler();
+        AstroLabelCache cache = new AstroLabelCache(labeler, "v1", 10);
+        cache.label(AstroFeatureMatrices.of("NGC", "1068"));
+
+        List<int[]> labels = cache.label(Arrays.asList(AstroFeatureMatrices.of("The", "galaxy"), AstroFeatureMatrices.of("NGC", "1068"),
+            AstroFeatureMatrices.of("is", "a", "Seyfert")));
+        assertEquals(3, labels.size());
+        assertArrayEquals(new int[]{3, 6}, labels.get(0));
+        assertArrayEquals(new int[]{3, 4}, labels.get(1));
+        assertArrayEquals(new int[]{2, 1, 7}, labels.get(2));
+        // one call for the two missing matrices
+        assertEquals(2, labeler.calls.get());
+        assertEquals(3, labeler.matrices.get());
+    }
+
+    @Test
+    public void testSaveLoad() throws Exception {
+        File file = File.createTempFile("astroLabelCache", ".bin");
+        try {
+            AstroLabelCache cache = new AstroLabelCache(new CountingLabeler(), "v1", 10);
+            cache.label(AstroFeatureMatrices.of("The", "galaxy"));
+            cache.save(file);
+
+            CountingLabeler labeler = new CountingLabeler();
+            AstroLabelCache loaded = new AstroLabelCache(labeler, "v1", 10);
+            loaded.load(file);
+            assertEquals(1, loaded.size());
+            assertArrayEquals(new int[]{3, 6}, loaded.label(AstroFeatureMatrices.of("The", "galaxy")));
+            assertEquals(0, labeler.calls.get());
+
+            // a cache saved with another model is ignored
+            AstroLabelCache other = new AstroLabelCache(new CountingLabeler(), "v2", 10);
+            other.load(file);
+            assertEquals(0, other.size());
+        } finally {
+            file.delete();
+        }
+    }
+}
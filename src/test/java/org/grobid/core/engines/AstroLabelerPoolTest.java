@@ -0,0 +1,78 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.features.AstroFeatureMatrix;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AstroLabelerPoolTest {
+
+    // labeler blocked until released
+    private static AstroSequenceLabeler blockingLabeler(CountDownLatch started, CountDownLatch release) {
+        return matrix -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new int[matrix.size()];
+        };
+    }
+
+    @Test
+    public void testWaitTimeout() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AstroLabelerPool pool = new AstroLabelerPool(() -> blockingLabeler(started, release), 1, 10, 50);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<int[]> first = executor.submit(() -> pool.label(new AstroFeatureMatrix()));
+            started.await(5, TimeUnit.SECONDS);
+            try {
+                pool.label(new AstroFeatureMatrix());
+                fail();
+            } catch (AstroLabelerBusyException e) {
+                // expected, the only labeler is busy
+            }
+            release.countDown();
+            assertEquals(0, first.get(5, TimeUnit.SECONDS).length);
+
+            // the labeler is back in the pool
+            assertEquals(0, pool.label(new AstroFeatureMatrix()).length);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testQueueFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AstroLabelerPool pool = new AstroLabelerPool(() -> blockingLabeler(started, release), 1, 0, 5000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> pool.label(new AstroFeatureMatrix()));
+            started.await(5, TimeUnit.SECONDS);
+            long start = System.currentTimeMillis();
+            try {
+                pool.label(new AstroFeatureMatrix());
+                fail();
+            } catch (AstroLabelerBusyException e) {
+                // rejected without waiting for the timeout
+                if (System.currentTimeMillis() - start > 1000)
+                    fail();
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
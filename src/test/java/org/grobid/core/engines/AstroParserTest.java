@@ -5,7 +5,10 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import org.grobid.core.data.AstroEntity;
 import org.grobid.core.document.Document;
+import org.grobid.core.engines.label.AstroTaggingLabels;
 import org.grobid.core.factory.GrobidFactory;
+import org.grobid.core.layout.LayoutToken;
+import org.grobid.core.utilities.LayoutTokensUtil;
 import org.grobid.core.utilities.GrobidProperties;
 import org.grobid.core.utilities.AstroConfiguration;
 import org.grobid.core.main.GrobidHomeFinder;
@@ -20,11 +23,13 @@ import org.junit.Test;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Arrays;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertNotNull;
 
 /**
@@ -76,6 +81,32 @@ public class AstroParserTest {
         assertThat(entities, hasSize(5));
     }
 
+    @Test
+    public void testOffsetsOfNonContiguousTokens() throws Exception {
+        // two zones of a PDF: the offsets of the layout tokens jump between the zones
+        String[] texts = {"The", " ", "Crab", " ", "Nebula", "\n", "and", " ", "M", " ", "31"};
+        int[] layoutOffsets = {100, 103, 104, 108, 109, 115, 5000, 5003, 5004, 5005, 5006};
+        int o = AstroTaggingLabels.LABEL_OTHER;
+        int b = AstroTaggingLabels.LABEL_OBJECT_BEGIN;
+        int i = AstroTaggingLabels.LABEL_OBJECT_INSIDE;
+        int n = AstroTaggingLabels.LABEL_NONE;
+        int[] labels = {o, n, b, n, i, n, o, n, b, n, i};
+        List<LayoutToken> tokens = new ArrayList<>();
+        for (int t = 0; t < texts.length; t++) {
+            LayoutToken token = new LayoutToken(texts[t]);
+            token.setOffset(layoutOffsets[t]);
+            tokens.add(token);
+        }
+
+        // the offsets are positions in the text of the tokens
+        String text = LayoutTokensUtil.toText(tokens);
+        List<AstroEntity> entities = AstroParser.getInstance().extractAstroEntities(tokens, labels);
+        assertThat(entities, hasSize(2));
+        for (AstroEntity entity : entities)
+            assertThat(text.substring(entity.getOffsetStart(), entity.getOffsetEnd()), is(entity.getRawForm()));
+        assertThat(entities.get(1).getOffsetStart(), is(20));
+    }
+
     //@Test
     public void testAstroParserPDF() throws Exception {
         Pair<List<AstroEntity>, Document> res = AstroParser.getInstance().processPDF(new File("./src/test/resources/annot.pdf"));
@@ -0,0 +1,60 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.engines.label.AstroTaggingLabels;
+import org.grobid.core.features.AstroFeatureMatrices;
+import org.grobid.core.features.AstroFeatureMatrix;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AstroSequenceChunkerTest {
+
+    // matrix of the tokens of the text separated by spaces
+    private static AstroFeatureMatrix matrix(String text) {
+        return AstroFeatureMatrices.of(text.split(" "));
+    }
+
+    // labels an object every capitalized token and the token following it
+    private static int[] label(AstroFeatureMatrix matrix) {
+        int[] labels = new int[matrix.size()];
+        for (int row = 0; row < matrix.size(); row++) {
+            if (Character.isUpperCase(matrix.getVector(row).string.charAt(0)))
+                labels[row] = AstroTaggingLabels.LABEL_OBJECT_BEGIN;
+            else if ((row > 0) && (labels[row - 1] == AstroTaggingLabels.LABEL_OBJECT_BEGIN))
+                labels[row] = AstroTaggingLabels.LABEL_OBJECT_INSIDE;
+            else
+                labels[row] = AstroTaggingLabels.LABEL_OTHER;
+        }
+        return labels;
+    }
+
+    @Test
+    public void testShortMatrix() throws Exception {
+        AstroFeatureMatrix matrix = matrix("a short sequence .");
+        List<AstroSequenceChunker.Chunk> chunks = new AstroSequenceChunker(10, 2).split(matrix);
+        assertEquals(1, chunks.size());
+        assertSame(matrix, chunks.get(0).matrix);
+    }
+
+    @Test
+    public void testSplitMerge() throws Exception {
+        AstroFeatureMatrix matrix = matrix("we observed Orion with the telescope . the nebula M42 is bright . " +
+            "then we observed the Crab nebula again . and nothing else");
+        AstroSequenceChunker chunker = new AstroSequenceChunker(8, 2);
+        List<AstroSequenceChunker.Chunk> chunks = chunker.split(matrix);
+        assertEquals(4, chunks.size());
+        // the first chunk ends with the first sentence, with two rows of context
+        assertEquals(9, chunks.get(0).matrix.size());
+        assertEquals(".", chunks.get(0).matrix.getVector(6).string);
+
+        List<int[]> chunkLabels = new ArrayList<>();
+        for (AstroSequenceChunker.Chunk chunk : chunks)
+            chunkLabels.add(label(chunk.matrix));
+        assertArrayEquals(label(matrix), chunker.merge(matrix.size(), chunks, chunkLabels));
+    }
+}
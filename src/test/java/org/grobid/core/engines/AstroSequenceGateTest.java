@@ -0,0 +1,69 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.analyzers.AstroAnalyzer;
+import org.grobid.core.features.AstroFeatureMatrices;
+import org.grobid.core.features.AstroFeatureMatrix;
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AstroSequenceGateTest {
+
+    // matrix of the tokens of the text, the spaces being tokens without row
+    private static AstroFeatureMatrix matrix(String text) {
+        return AstroFeatureMatrices.of(AstroAnalyzer.getInstance().tokenize(text), new BitSet(), new BitSet());
+    }
+
+    @Test
+    public void testFromName() throws Exception {
+        assertEquals(AstroSequenceGate.OFF, AstroSequenceGate.fromName(null));
+        assertEquals(AstroSequenceGate.CONSERVATIVE, AstroSequenceGate.fromName("conservative"));
+    }
+
+    @Test
+    public void testLowerCaseSequence() throws Exception {
+        AstroFeatureMatrix matrix = matrix("the spectra were reduced with standard procedures");
+        assertTrue(AstroSequenceGate.OFF.isCandidate(matrix, new BitSet()));
+        assertFalse(AstroSequenceGate.CONSERVATIVE.isCandidate(matrix, new BitSet()));
+        assertFalse(AstroSequenceGate.AGGRESSIVE.isCandidate(matrix, new BitSet()));
+    }
+
+    @Test
+    public void testSentenceStart() throws Exception {
+        AstroFeatureMatrix matrix = matrix("The spectra were reduced in 2019 .");
+        assertTrue(AstroSequenceGate.CONSERVATIVE.isCandidate(matrix, new BitSet()));
+        assertFalse(AstroSequenceGate.AGGRESSIVE.isCandidate(matrix, new BitSet()));
+
+        matrix = matrix("the spectra of Andromeda");
+        assertTrue(AstroSequenceGate.AGGRESSIVE.isCandidate(matrix, new BitSet()));
+    }
+
+    @Test
+    public void testExcludedTokens() throws Exception {
+        AstroFeatureMatrix matrix = matrix("the spectra of NGC 1068");
+        assertTrue(AstroSequenceGate.CONSERVATIVE.isCandidate(matrix, new BitSet()));
+        BitSet designation = new BitSet();
+        designation.set(6, 9);
+        assertFalse(AstroSequenceGate.CONSERVATIVE.isCandidate(matrix, designation));
+        assertFalse(AstroSequenceGate.CONSERVATIVE.isCandidate(new AstroFeatureMatrix(), new BitSet()));
+    }
+
+    @Test
+    public void testLettersFollowedByDigits() throws Exception {
+        // tokenized into KIC and 8462852
+        AstroFeatureMatrix matrix = matrix("the light curve of KIC8462852 is irregular");
+        assertTrue(AstroSequenceGate.AGGRESSIVE.isCandidate(matrix, new BitSet()));
+        matrix = matrix("the light curve of kic8462852 is irregular");
+        assertTrue(AstroSequenceGate.AGGRESSIVE.isCandidate(matrix, new BitSet()));
+
+        // a space or a line break between the letters and the digits
+        matrix = matrix("the light curve of kic 8462852");
+        assertFalse(AstroSequenceGate.AGGRESSIVE.isCandidate(matrix, new BitSet()));
+        matrix = AstroFeatureMatrices.of("the", " ", "curve", " ", "of", " ", "kic", "@newline", "8462852");
+        assertFalse(AstroSequenceGate.AGGRESSIVE.isCandidate(matrix, new BitSet()));
+    }
+}
@@ -0,0 +1,103 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.data.AstroEntity;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AstroTextBatcherTest {
+
+    @Test
+    public void testResultsOfTheirOwnRequest() throws Exception {
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        AstroTextBatcher batcher = new AstroTextBatcher(50, 10, 100, 5000, texts -> {
+            batchSizes.add(texts.size());
+            List<List<AstroEntity>> results = new ArrayList<>();
+            for (String text : texts)
+                results.add(Collections.singletonList(new AstroEntity(text)));
+            return results;
+        });
+
+        List<CompletableFuture<List<AstroEntity>>> futures = new ArrayList<>();
+        for (int i = 0; i < 25; i++)
+            futures.add(batcher.submit("text " + i));
+        for (int i = 0; i < 25; i++)
+            assertEquals("text " + i, futures.get(i).get(5, TimeUnit.SECONDS).get(0).getRawForm());
+
+        int total = 0;
+        for (int size : batchSizes) {
+            assertTrue(size <= 10);
+            total += size;
+        }
+        assertEquals(25, total);
+        assertTrue(batchSizes.size() < 25);
+    }
+
+    @Test
+    public void testFailureOfTheBatch() throws Exception {
+        AstroTextBatcher batcher = new AstroTextBatcher(1, 10, 100, 5000, texts -> {
+            throw new IllegalStateException("labeling failed");
+        });
+        try {
+            batcher.submit("text").get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("labeling failed", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testFailureOfOneText() throws Exception {
+        AstroTextBatcher batcher = new AstroTextBatcher(200, 10, 100, 5000, texts -> {
+            List<List<AstroEntity>> results = new ArrayList<>();
+            for (String text : texts) {
+                if (text.equals("bad"))
+                    throw new IllegalStateException("labeling failed");
+                results.add(Collections.singletonList(new AstroEntity(text)));
+            }
+            return results;
+        });
+        CompletableFuture<List<AstroEntity>> good = batcher.submit("good");
+        CompletableFuture<List<AstroEntity>> bad = batcher.submit("bad");
+        assertEquals("good", good.get(5, TimeUnit.SECONDS).get(0).getRawForm());
+        try {
+            bad.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("labeling failed", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testFullQueue() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        AstroTextBatcher batcher = new AstroTextBatcher(1, 10, 2, 5000, texts -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return Collections.nCopies(texts.size(), Collections.<AstroEntity>emptyList());
+        });
+        CompletableFuture<List<AstroEntity>> first = batcher.submit("first");
+        batcher.submit("second");
+        try {
+            batcher.submit("third");
+            fail();
+        } catch (AstroLabelerBusyException e) {
+            // rejected, answered with 503 by the service
+        }
+        latch.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS).isEmpty());
+    }
+}
@@ -0,0 +1,51 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.engines.label.AstroTaggingLabels;
+import org.grobid.core.features.AstroFeatureMatrix;
+import org.grobid.core.features.AstroFeatureMatrices;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class AstroTextLabelerTest {
+
+    @Test
+    public void testBatchedLabeling() throws Exception {
+        // labels the tokens starting with an upper case letter as objects, as the CRF library
+        // would write them: the features followed by the label
+        AtomicInteger nbCalls = new AtomicInteger();
+        AstroTextLabeler labeler = new AstroTextLabeler(features -> {
+            nbCalls.incrementAndGet();
+            StringBuilder result = new StringBuilder();
+            for (String line : features.split("\n", -1)) {
+                if (line.trim().isEmpty()) {
+                    result.append("\n");
+                    continue;
+                }
+                boolean object = Character.isUpperCase(line.charAt(0));
+                result.append(line).append('\t').append(object ? "I-<object>" : "<other>").append("\n");
+            }
+            return result.toString();
+        });
+
+        List<int[]> labels = labeler.label(Arrays.asList(
+            AstroFeatureMatrices.of("the", "NGC", "1068"), 
+            AstroFeatureMatrices.of(), 
+            AstroFeatureMatrices.of("M", "@newline", "31", "Sgr"), 
+            AstroFeatureMatrices.of("x")));
+
+        int o = AstroTaggingLabels.LABEL_OTHER;
+        int b = AstroTaggingLabels.LABEL_OBJECT_BEGIN;
+        assertEquals(1, nbCalls.get());
+        assertEquals(4, labels.size());
+        assertArrayEquals(new int[] {o, b, o}, labels.get(0));
+        assertArrayEquals(new int[0], labels.get(1));
+        assertArrayEquals(new int[] {b, o, b}, labels.get(2));
+        assertArrayEquals(new int[] {o}, labels.get(3));
+    }
+}
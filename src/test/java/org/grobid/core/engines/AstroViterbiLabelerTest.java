@@ -0,0 +1,143 @@
+package org.grobid.core.engines;
+
+import org.grobid.core.engines.label.AstroTaggingLabels;
+import org.grobid.core.features.AstroFeatureMatrix;
+import org.grobid.core.features.AstroFeatureMatrices;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class AstroViterbiLabelerTest {
+
+    private static final String[] LABELS = {"<other>", "I-<object>", "<object>"};
+    private static final String[] TOKENS = {"The", "galaxy", "NGC", "1068", "and", "M", "31", "."};
+
+    private static String string(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length + ":" + value + ",\n";
+    }
+
+    // unigram observations of the token at t: token, and lexical feature of previous/current token
+    private static List<String> unigrams(AstroFeatureMatrix matrix, int t) {
+        List<String> observations = new ArrayList<>();
+        observations.add("u00:" + matrix.getColumn(t, 0));
+        String previous = (t == 0) ? "_x-1" : matrix.getColumn(t - 1, 16);
+        observations.add("u01:" + previous + "/" + matrix.getColumn(t, 16));
+        return observations;
+    }
+
+    // "galaxy"... with "NGC" and "M" in the astro vocabulary, and line breaks before the
+    // tokens of the indexes of breaks
+    private static AstroFeatureMatrix matrix(int[] breaks) {
+        List<String> tokens = new ArrayList<>();
+        BitSet astroTokens = new BitSet();
+        for (int i = 0; i < TOKENS.length; i++) {
+            for (int b : breaks) {
+                if (b == i)
+                    tokens.add("@newline");
+            }
+            if ((i == 2) || (i == 5))
+                astroTokens.set(tokens.size());
+            tokens.add(TOKENS[i]);
+        }
+        return AstroFeatureMatrices.of(tokens, astroTokens, new BitSet());
+    }
+
+    @Test
+    public void testSameLabelsAsExhaustiveSearch() throws Exception {
+        Random random = new Random(42);
+        AstroFeatureMatrix matrix = matrix(new int[0]);
+        int nbLabels = LABELS.length;
+
+        // weights of the observations of the sequence, and of a few observations never seen
+        Map<String, double[]> weights = new LinkedHashMap<>();
+        weights.put("u00:unseen", new double[nbLabels]);
+        for (int t = 0; t < matrix.size(); t++) {
+            for (String observation : unigrams(matrix, t))
+                weights.computeIfAbsent(observation, k -> new double[nbLabels]);
+        }
+        weights.put("b", new double[nbLabels * nbLabels]);
+
+        StringBuilder model = new StringBuilder();
+        StringBuilder features = new StringBuilder();
+        int feature = 0;
+        int nbActive = 0;
+        for (double[] values : weights.values()) {
+            for (int i = 0; i < values.length; i++, feature++) {
+                values[i] = random.nextGaussian();
+                features.append(feature).append('=').append(Double.toHexString(values[i])).append('\n');
+                nbActive++;
+            }
+        }
+        model.append("#mdl#2#").append(nbActive).append('\n');
+        model.append("#rdr#3/22/0\n");
+        model.append(string("U00:%x[0,0]")).append(string("U01:%x[-1,16]/%x[0,16]")).append(string("B"));
+        model.append("#qrk#").append(nbLabels).append('\n');
+        for (String label : LABELS)
+            model.append(string(label));
+        model.append("#qrk#").append(weights.size()).append('\n');
+        for (String observation : weights.keySet())
+            model.append(string(observation));
+        model.append(features);
+
+        AstroViterbiLabeler labeler = AstroViterbiLabeler.read(
+            new ByteArrayInputStream(model.toString().getBytes(StandardCharsets.UTF_8)));
+
+        // best sequence of labels by enumeration of all the sequences
+        int length = matrix.size();
+        int[] best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int[] labels = new int[length];
+        for (int n = 0; n < Math.pow(nbLabels, length); n++) {
+            int code = n;
+            double score = 0.0;
+            for (int t = 0; t < length; t++) {
+                labels[t] = code % nbLabels;
+                code /= nbLabels;
+                for (String observation : unigrams(matrix, t))
+                    score += weights.get(observation)[labels[t]];
+                if (t > 0)
+                    score += weights.get("b")[labels[t - 1] * nbLabels + labels[t]];
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = labels.clone();
+            }
+        }
+        int[] expected = new int[length];
+        for (int t = 0; t < length; t++)
+            expected[t] = AstroTaggingLabels.labelCode(LABELS[best[t]]);
+
+        assertArrayEquals(expected, labeler.label(matrix));
+    }
+
+    @Test
+    public void testSequencesSeparatedByBreaks() throws Exception {
+        // the first token of a sequence is <other>, and the bigram features favour a change
+        // of label between two tokens
+        StringBuilder model = new StringBuilder();
+        model.append("#mdl#2#4\n");
+        model.append("#rdr#2/22/0\n");
+        model.append(string("U00:%x[-1,0]")).append(string("B"));
+        model.append("#qrk#2\n").append(string("<other>")).append(string("<object>"));
+        model.append("#qrk#2\n").append(string("u00:_x-1")).append(string("b"));
+        model.append("0=0x1.8p+1\n1=-0x1.8p+1\n");
+        model.append("3=0x1p+0\n4=0x1p+0\n");
+
+        AstroViterbiLabeler labeler = AstroViterbiLabeler.read(
+            new ByteArrayInputStream(model.toString().getBytes(StandardCharsets.UTF_8)));
+
+        int o = AstroTaggingLabels.LABEL_OTHER;
+        int x = AstroTaggingLabels.LABEL_OBJECT_INSIDE;
+        assertArrayEquals(new int[] {o, x, o, x, o, x, o, x}, labeler.label(matrix(new int[0])));
+        assertArrayEquals(new int[] {o, x, o, o, x, o, o, x}, labeler.label(matrix(new int[] {3, 6})));
+    }
+}
@@ -0,0 +1,63 @@
+package org.grobid.core.engines;
+
+import org.apache.commons.io.IOUtils;
+
+import org.grobid.core.GrobidModels;
+import org.grobid.core.analyzers.AstroAnalyzer;
+import org.grobid.core.engines.tagging.WapitiTagger;
+import org.grobid.core.features.AstroFeatureMatrix;
+import org.grobid.core.layout.LayoutToken;
+import org.grobid.core.lexicon.AstroLexicon;
+import org.grobid.core.main.GrobidHomeFinder;
+import org.grobid.core.utilities.AstroConfiguration;
+import org.grobid.core.utilities.GrobidProperties;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Labels of the Java decoder of the trained astro model compared to the labels of the native
+ * Wapiti library on the same model, for the paragraphs of the test text.
+ */
+public class AstroViterbiLabelerWapitiTest {
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+        AstroConfiguration astroConfiguration = mapper.readValue(new File("resources/config/grobid-astro.yaml"), 
+            AstroConfiguration.class);
+        GrobidHomeFinder grobidHomeFinder = new GrobidHomeFinder(Arrays.asList(astroConfiguration.getGrobidHome()));
+        GrobidProperties.getInstance(grobidHomeFinder);
+    }
+
+    @Test
+    public void testSameLabelsAsWapiti() throws Exception {
+        AstroSequenceLabeler wapitiLabeler = new AstroTextLabeler(new WapitiTagger(GrobidModels.ASTRO)::label);
+        AstroSequenceLabeler javaLabeler = AstroViterbiLabeler.load(new File(GrobidModels.ASTRO.getModelPath()));
+        AstroLexicon astroLexicon = AstroLexicon.getInstance();
+
+        String text = IOUtils.toString(this.getClass().getResourceAsStream("/text.txt"), StandardCharsets.UTF_8.toString());
+        int nbParagraphs = 0;
+        for (String paragraph : text.split("\n\\s*\n")) {
+            if (paragraph.trim().isEmpty())
+                continue;
+            List<LayoutToken> tokens = AstroAnalyzer.getInstance().tokenizeWithLayoutToken(paragraph.trim());
+            AstroFeatureMatrix matrix = AstroParser.getInstance().featureMatrix(tokens, 
+                astroLexicon.tokenPositionsAstroNames(tokens), astroLexicon);
+            assertArrayEquals("paragraph " + nbParagraphs, wapitiLabeler.label(matrix), javaLabeler.label(matrix));
+            nbParagraphs++;
+        }
+        assertTrue(nbParagraphs > 0);
+    }
+}
@@ -0,0 +1,42 @@
+package org.grobid.core.features;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Feature matrices of the tests, built from token texts as the parser builds them from the
+ * layout tokens.
+ */
+public final class AstroFeatureMatrices {
+
+    private AstroFeatureMatrices() {
+    }
+
+    /**
+     * Matrix of a sequence of token texts without lexical features, "@newline" being a line
+     * break and a blank token a token without row.
+     */
+    public static AstroFeatureMatrix of(String... tokens) {
+        return of(Arrays.asList(tokens), new BitSet(), new BitSet());
+    }
+
+    /**
+     * Matrix of a sequence of token texts, "@newline" being a line break and a blank token a
+     * token without row, the tokens of the indexes set in astroTokens and astroPatterns being
+     * in the astro vocabulary and in a lexicon name.
+     */
+    public static AstroFeatureMatrix of(List<String> tokens, BitSet astroTokens, BitSet astroPatterns) {
+        AstroFeatureMatrix matrix = new AstroFeatureMatrix();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.equals("@newline"))
+                matrix.addBreak(i);
+            else if (token.trim().length() == 0)
+                matrix.skip(i);
+            else
+                matrix.add(FeaturesVectorAstro.addFeaturesAstro(token, null, astroTokens.get(i), astroPatterns.get(i)), i);
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,75 @@
+package org.grobid.core.features;
+
+import org.grobid.core.engines.label.AstroTaggingLabels;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class AstroFeatureMatrixTest {
+
+    private static final String[] TOKENS = {"The", " ", "galaxy", " ", "NGC", " ", "1068", "@newline", "is", "."};
+
+    // "NGC" in the astro vocabulary, "NGC 1068" a lexicon name
+    private static AstroFeatureMatrix matrix() {
+        BitSet astroTokens = new BitSet();
+        astroTokens.set(4);
+        BitSet astroPatterns = new BitSet();
+        astroPatterns.set(4);
+        astroPatterns.set(6);
+        return AstroFeatureMatrices.of(Arrays.asList(TOKENS), astroTokens, astroPatterns);
+    }
+
+    @Test
+    public void testSerialize() throws Exception {
+        AstroFeatureMatrix matrix = matrix();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < TOKENS.length; i++) {
+            if (TOKENS[i].equals("@newline"))
+                expected.append("\n");
+            else if (TOKENS[i].trim().length() > 0)
+                expected.append(FeaturesVectorAstro.addFeaturesAstro(TOKENS[i], null, i == 4, (i == 4) || (i == 6))
+                    .printVector()).append("\n");
+        }
+        StringBuilder actual = new StringBuilder();
+        matrix.serialize(actual);
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void testColumns() throws Exception {
+        AstroFeatureMatrix matrix = matrix();
+        for (int row = 0; row < matrix.size(); row++) {
+            String[] columns = matrix.getVector(row).printVector().split(" ");
+            assertEquals(FeaturesVectorAstro.NB_COLUMNS, columns.length);
+            for (int column = 0; column < columns.length; column++)
+                assertEquals(columns[column], matrix.getColumn(row, column));
+        }
+    }
+
+    @Test
+    public void testAlignToTokens() throws Exception {
+        AstroFeatureMatrix matrix = matrix();
+        assertEquals(6, matrix.size());
+        assertEquals(TOKENS.length, matrix.getNbTokens());
+        int[] labels = matrix.alignToTokens(new int[] {
+            AstroTaggingLabels.LABEL_OTHER, AstroTaggingLabels.LABEL_OTHER,
+            AstroTaggingLabels.LABEL_OBJECT_BEGIN, AstroTaggingLabels.LABEL_OBJECT_INSIDE,
+            AstroTaggingLabels.LABEL_OTHER, AstroTaggingLabels.LABEL_OTHER});
+        assertArrayEquals(new int[] {
+            AstroTaggingLabels.LABEL_OTHER, AstroTaggingLabels.LABEL_NONE,
+            AstroTaggingLabels.LABEL_OTHER, AstroTaggingLabels.LABEL_NONE,
+            AstroTaggingLabels.LABEL_OBJECT_BEGIN, AstroTaggingLabels.LABEL_NONE,
+            AstroTaggingLabels.LABEL_OBJECT_INSIDE, AstroTaggingLabels.LABEL_NONE,
+            AstroTaggingLabels.LABEL_OTHER, AstroTaggingLabels.LABEL_OTHER}, labels);
+    }
+
+    @Test
+    public void testLabelCodes() throws Exception {
+        for (int code = AstroTaggingLabels.LABEL_OTHER; code <= AstroTaggingLabels.LABEL_OBJECT_INSIDE; code++)
+            assertEquals(code, AstroTaggingLabels.labelCode(AstroTaggingLabels.labelString(code)));
+    }
+}
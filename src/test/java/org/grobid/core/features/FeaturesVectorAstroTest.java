@@ -0,0 +1,118 @@
+package org.grobid.core.features;
+
+import org.apache.commons.io.FileUtils;
+import org.grobid.core.analyzers.AstroAnalyzer;
+import org.grobid.core.utilities.OffsetPosition;
+import org.grobid.core.utilities.TextUtilities;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The feature vectors must stay identical to the ones the current models were trained with.
+ */
+public class FeaturesVectorAstroTest {
+
+    // printVector() as it was written before the vectors were appended to a shared builder
+    private static String legacyPrintVector(FeaturesVectorAstro vector) {
+        String string = vector.string;
+        if (string == null) return null;
+        if (string.length() == 0) return null;
+        StringBuffer res = new StringBuffer();
+        res.append(string);
+        res.append(" " + string.toLowerCase());
+        for (int i = 1; i <= 5; i++)
+            res.append(" " + TextUtilities.prefix(string, i));
+        for (int i = 1; i <= 5; i++)
+            res.append(" " + TextUtilities.suffix(string, i));
+        if (vector.digit.equals("ALLDIGIT"))
+            res.append(" NOCAPS");
+        else
+            res.append(" " + vector.capitalisation);
+        res.append(" " + vector.digit);
+        res.append(vector.singleChar ? " 1" : " 0");
+        res.append(" " + vector.punctType);
+        res.append(vector.astroName ? " 1" : " 0");
+        res.append(vector.isAstroToken ? " 1" : " 0");
+        res.append(" " + vector.shadowNumber);
+        res.append(" " + vector.wordShape);
+        res.append(" " + vector.wordShapeTrimmed);
+        if (vector.label != null)
+            res.append(" " + vector.label + "");
+        else
+            res.append(" 0");
+        return res.toString();
+    }
+
+    private static void assertSameVectors(List<String> tokens) {
+        StringBuilder expected = new StringBuilder();
+        StringBuilder actual = new StringBuilder();
+        int n = 0;
+        for (String token : tokens) {
+            if (token.trim().length() == 0)
+                continue;
+            String label = ((n % 3) == 0) ? null : "<object>";
+            FeaturesVectorAstro vector = 
+                FeaturesVectorAstro.addFeaturesAstro(token, label, (n % 2) == 0, (n % 5) == 0);
+            expected.append(legacyPrintVector(vector)).append("\n");
+            vector.printVector(actual);
+            actual.append("\n");
+            assertEquals(legacyPrintVector(vector), vector.printVector());
+            n++;
+        }
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void testPrintVectorSimpleCases() throws Exception {
+        assertSameVectors(Arrays.asList("NGC", "1068", "a", "M", "-", "(", "GRBs", "Ab", "İstanbul", 
+            "ΣΑΣ", "straße", "Ω", "x1y2z3", "ABCDEFGHIJ", "\"", "."));
+    }
+
+    @Test
+    public void testPrintVectorEvaluationCorpus() throws Exception {
+        File[] files = new File("resources/dataset/astro/evaluation").listFiles();
+        List<String> tokens = new ArrayList<>();
+        for (File file : files) {
+            String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+            tokens.addAll(AstroAnalyzer.getInstance().tokenize(content));
+        }
+        assertSameVectors(tokens);
+    }
+
+    @Test
+    public void testAstroNameCoverage() throws Exception {
+        // positions in the order of the matcher, by end position then longest first, with a
+        // name nested in a longer one
+        List<OffsetPosition> positions = Arrays.asList(new OffsetPosition(5, 5), 
+            new OffsetPosition(3, 6), new OffsetPosition(10, 12));
+        BitSet covered = FeaturesVectorAstro.astroNameCoverage(positions);
+        assertEquals("{3, 4, 5, 6, 10, 11, 12}", covered.toString());
+        assertEquals(0, FeaturesVectorAstro.astroNameCoverage(null).cardinality());
+    }
+
+    @Test
+    public void testTokenCache() throws Exception {
+        try {
+            FeaturesVectorAstro.setTokenCacheSize(10);
+            FeaturesVectorAstro vector = FeaturesVectorAstro.addFeaturesAstro("Seyfert", null, false, false);
+            FeaturesVectorAstro.addFeaturesAstro("Seyfert", null, true, false);
+            assertEquals(1, FeaturesVectorAstro.tokenCacheStats().hitCount());
+            assertEquals(1, FeaturesVectorAstro.tokenCacheStats().missCount());
+
+            // the columns are read from the cached strings of the token
+            String[] columns = vector.printVector().split(" ");
+            for (int column = 0; column < FeaturesVectorAstro.NB_COLUMNS; column++)
+                assertEquals(columns[column], vector.getColumn(column));
+        } finally {
+            FeaturesVectorAstro.setTokenCacheSize(FeaturesVectorAstro.DEFAULT_TOKEN_CACHE_SIZE);
+        }
+    }
+}
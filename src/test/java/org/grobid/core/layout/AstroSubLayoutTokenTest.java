@@ -0,0 +1,41 @@
+package org.grobid.core.layout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class AstroSubLayoutTokenTest {
+
+    @Test
+    public void testLayoutOfTheParent() throws Exception {
+        LayoutToken parent = new LayoutToken("NGC1068");
+        parent.setFont("Times");
+        parent.setOffset(10);
+        AstroSubLayoutToken token = new AstroSubLayoutToken(parent, "1068", 13);
+        assertEquals("1068", token.getText());
+        assertEquals(13, token.getOffset());
+        assertEquals("Times", token.getFont());
+
+        // the parent of a sub-token of a sub-token is the original token
+        assertSame(parent, new AstroSubLayoutToken(token, "06", 14).getParent());
+    }
+
+    @Test
+    public void testReadOnlyLayout() throws Exception {
+        AstroSubLayoutToken token = new AstroSubLayoutToken(new LayoutToken("NGC1068"), "NGC", 0);
+        try {
+            token.setFont("Courier");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // the layout is read from the parent
+        }
+        try {
+            token.setPage(2);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // the layout is read from the parent
+        }
+    }
+}
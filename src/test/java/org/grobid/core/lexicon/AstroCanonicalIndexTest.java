@@ -0,0 +1,59 @@
+package org.grobid.core.lexicon;
+
+import org.grobid.core.analyzers.AstroAnalyzer;
+import org.grobid.core.layout.LayoutToken;
+import org.grobid.core.utilities.OffsetPosition;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class AstroCanonicalIndexTest {
+
+    private static AstroCanonicalIndex index;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        index = AstroCanonicalIndex.build(Arrays.asList("NGC 1068", "M4-37934", "2MASS J01033563-5515561", "GRB"));
+    }
+
+    private static List<String> match(String text) {
+        List<LayoutToken> tokens = AstroAnalyzer.getInstance().tokenizeWithLayoutToken(text);
+        List<String> result = new ArrayList<>();
+        for (OffsetPosition position : index.matchLayoutToken(tokens)) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = position.start; i <= position.end; i++)
+                builder.append(tokens.get(i).getText());
+            result.add(builder.toString());
+        }
+        return result;
+    }
+
+    @Test
+    public void testCanonicalKey() throws Exception {
+        assertThat(AstroCanonicalIndex.canonicalKey("NGC 1068"), is("ngc1068"));
+        assertThat(AstroCanonicalIndex.canonicalKey("M4–37934"), is("m4-37934"));
+        assertThat(AstroCanonicalIndex.canonicalKey("M4− 37934"), is("m4-37934"));
+    }
+
+    @Test
+    public void testGetTerm() throws Exception {
+        assertThat(index.getTerm("ngc1068"), is("NGC 1068"));
+        assertThat(index.getTerm("2MASSJ01033563–5515561"), is("2MASS J01033563-5515561"));
+        assertThat(index.getTerm("NGC 1069"), nullValue());
+    }
+
+    @Test
+    public void testMatchVariants() throws Exception {
+        assertThat(match("the Seyfert galaxy NGC1068 and ngc 1068"), is(Arrays.asList("NGC1068", "ngc 1068")));
+        assertThat(match("see 2MASSJ01033563-5515561."), is(Arrays.asList("2MASSJ01033563-5515561")));
+        assertThat(match("the M4 – 37934 star"), is(Arrays.asList("M4 – 37934")));
+        assertThat(match("NGC 10689 and GRBs"), is(Arrays.<String>asList()));
+    }
+}
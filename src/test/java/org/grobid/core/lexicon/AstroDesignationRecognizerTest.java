@@ -0,0 +1,46 @@
+package org.grobid.core.lexicon;
+
+import org.grobid.core.analyzers.AstroAnalyzer;
+import org.grobid.core.layout.LayoutToken;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class AstroDesignationRecognizerTest {
+
+    private static List<String> recognize(String text) {
+        List<LayoutToken> tokens = AstroAnalyzer.getInstance().tokenizeWithLayoutToken(text);
+        List<String> result = new ArrayList<>();
+        for (AstroDesignationRecognizer.Designation designation : AstroDesignationRecognizer.getInstance().recognize(tokens)) {
+            List<LayoutToken> theTokens = 
+                tokens.subList(designation.getPosition().start, designation.getPosition().end + 1);
+            result.add(designation.getCatalog() + ":" + designation.getNormalizedForm(theTokens));
+        }
+        return result;
+    }
+
+    @Test
+    public void testRecognizeDesignations() throws Exception {
+        assertThat(recognize("The Seyfert galaxies NGC 1068 and NGC4151, IC 342 and Messier 31."), 
+            is(Arrays.asList("NGC:NGC 1068", "NGC:NGC 4151", "IC:IC 342", "MESSIER:M 31")));
+        assertThat(recognize("HD 209458 transits, as HIP 11915 does not."), 
+            is(Arrays.asList("HD:HD 209458", "HIP:HIP 11915")));
+        assertThat(recognize("2MASS J01033563-5515561 and SDSS J123456.78+123456.7"), 
+            is(Arrays.asList("TWO_MASS:2MASS J01033563-5515561", "SDSS:SDSS J123456.78+123456.7")));
+    }
+
+    @Test
+    public void testRejectAmbiguousDesignations() throws Exception {
+        // identifiers continuing after the number, Messier numbers out of the catalog
+        assertThat(recognize("there is M4-37934 in the corner, NGC 1068a and M 200"), 
+            is(Arrays.<String>asList()));
+        assertThat(recognize("the mass of 12M 31 and NGC 12345"), is(Arrays.<String>asList()));
+        // planet and component suffixes
+        assertThat(recognize("HD 209458 b transits, HD 80606 A and M 31."), is(Arrays.asList("MESSIER:M 31")));
+    }
+}
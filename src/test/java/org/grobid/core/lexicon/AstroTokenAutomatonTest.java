@@ -0,0 +1,123 @@
+package org.grobid.core.lexicon;
+
+import org.apache.commons.io.FileUtils;
+import org.grobid.core.analyzers.AstroAnalyzer;
+import org.grobid.core.layout.LayoutToken;
+import org.grobid.core.utilities.OffsetPosition;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Equivalence of the token automaton with FastMatcher on the astro lexicon.
+ */
+public class AstroTokenAutomatonTest {
+    private static final File LEXICON = new File("resources/lexicon/astroVoc.txt");
+
+    private static FastMatcher fastMatcher;
+    private static AstroTokenAutomaton automaton;
+    private static List<String> terms;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        fastMatcher = new FastMatcher(LEXICON, AstroAnalyzer.getInstance());
+        terms = FileUtils.readLines(LEXICON, StandardCharsets.UTF_8);
+        AstroTokenAutomaton.Builder builder = new AstroTokenAutomaton.Builder();
+        for (String term : terms) {
+            builder.addTerm(term);
+        }
+        automaton = builder.build();
+    }
+
+    private static List<String> toStrings(List<OffsetPosition> positions) {
+        List<String> result = new ArrayList<>();
+        for (OffsetPosition position : positions) {
+            result.add(position.start + "-" + position.end);
+        }
+        return result;
+    }
+
+    private static void assertSameMatches(String text) {
+        List<LayoutToken> tokens = AstroAnalyzer.getInstance().tokenizeWithLayoutToken(text);
+        assertEquals(text, toStrings(fastMatcher.matchLayoutToken(tokens)),
+            toStrings(automaton.matchLayoutToken(tokens)));
+    }
+
+    @Test
+    public void testMatchSimpleCases() throws Exception {
+        assertSameMatches("GRB 10002 and other GRBs, but also GRB 050219. Still we have Magellanic Clouds " +
+            "around and M4-37934 in the corner, of M 4 or other NGC.");
+        assertSameMatches("there is M4-37934 in the corner");
+        assertSameMatches("GRBs.");
+        assertSameMatches("");
+    }
+
+    @Test
+    public void testMatchEvaluationCorpus() throws Exception {
+        File[] files = new File("resources/dataset/astro/evaluation").listFiles();
+        for (File file : files) {
+            String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+            for (String line : content.split("\n")) {
+                assertSameMatches(line);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchLexiconSequences() throws Exception {
+        // overlapping and adjacent names from the lexicon mixed with usual words
+        Random random = new Random(42);
+        List<String> words = Arrays.asList("the", "of", "and", "-", "(", ")", ",", " ", ".");
+        for (int n = 0; n < 2000; n++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(8) + 1;
+            for (int i = 0; i < length; i++) {
+                if (random.nextBoolean())
+                    text.append(terms.get(random.nextInt(terms.size())));
+                else
+                    text.append(words.get(random.nextInt(words.size())));
+                if (random.nextBoolean())
+                    text.append(" ");
+            }
+            assertSameMatches(text.toString());
+        }
+    }
+
+    @Test
+    public void testCompiledAutomaton() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        automaton.write(output);
+        output.close();
+        assertEquals(0, bytes.size() % 8);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.size());
+        buffer.put(bytes.toByteArray());
+        buffer.flip();
+        AstroTokenAutomaton compiled = AstroTokenAutomaton.read(buffer);
+        assertEquals(bytes.size(), buffer.position());
+        assertEquals(automaton.getNbTerms(), compiled.getNbTerms());
+        assertEquals(automaton.getNbStates(), compiled.getNbStates());
+
+        File[] files = new File("resources/dataset/astro/evaluation").listFiles();
+        for (File file : files) {
+            String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+            for (String line : content.split("\n")) {
+                List<LayoutToken> tokens = AstroAnalyzer.getInstance().tokenizeWithLayoutToken(line);
+                assertEquals(line, toStrings(automaton.matchLayoutToken(tokens)),
+                    toStrings(compiled.matchLayoutToken(tokens)));
+            }
+        }
+    }
+}